@@ -0,0 +1,207 @@
+package bench;
+
+import com.darianopolis.dmj.json.Json;
+import com.darianopolis.dmj.json.JsonCursor;
+import com.darianopolis.dmj.json.JsonProjection;
+import com.darianopolis.dmj.json.JsonReader;
+import com.jsoniter.JsonIterator;
+import com.jsoniter.any.Any;
+import dev.TestJson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Navigation of documents that have already been indexed, comparing iteration with random access.
+ *
+ * users*  sum the ages of every user of the tags payload, in document order or in a fixed random order,
+ *   usersOffHeapRandom with the index and source moved off heap
+ * wide*   look up every key of the wide payload in a fixed random order, wideNestedRandom within the wide payload
+ *   nested as the value of a key, through a new pointer to it for every lookup
+ * deep*   reach the innermost array of the deep payload and read every element
+ * jsoniter benchmarks use a lazily bound Any, jdk benchmarks read the same values from plain collections,
+ *   as the lower bound of any navigation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class AccessBenchmark {
+    private static final JsonProjection AGE = JsonProjection.of("age");
+
+    private Json users;
+    private Json wide;
+    private Json wideNested;
+    private Json deep;
+    private JsonReader offHeapReader;
+    private Json offHeapUsers;
+    private Any usersAny;
+    private Any wideAny;
+    private Any deepAny;
+    private int[] ages;
+    private Map<String, Integer> wideMap;
+
+    private int[] order;
+    private String[] keys;
+    private int[] column;
+    private JsonCursor cursor;
+
+    @Setup
+    public void setup() {
+        users = JsonReader.read(BenchData.bytes("tags")).get("users");
+        wide = JsonReader.read(BenchData.bytes("wide"));
+        wideNested = JsonReader.read("{\"config\":"+ BenchData.payload("wide") +"}");
+        deep = JsonReader.read(BenchData.bytes("deep"));
+        offHeapReader = new JsonReader();
+        offHeapUsers = offHeapReader.reset(BenchData.bytes("tags")).get("users");
+        offHeapReader.moveOffHeap();
+        usersAny = JsonIterator.deserialize(BenchData.bytes("tags")).get("users");
+        wideAny = JsonIterator.deserialize(BenchData.bytes("wide"));
+        deepAny = JsonIterator.deserialize(BenchData.bytes("deep"));
+
+        Random random = new Random(3);
+        order = shuffled(random, BenchData.USERS);
+        ages = new int[BenchData.USERS];
+        for (int i = 0; i < ages.length; i++) ages[i] = users.get(i).get("age").asInteger();
+        int[] keyOrder = shuffled(random, BenchData.WIDE_KEYS);
+        keys = new String[BenchData.WIDE_KEYS];
+        wideMap = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key"+ keyOrder[i];
+            wideMap.put("key"+ i, i);
+        }
+        column = new int[BenchData.USERS];
+        cursor = new JsonCursor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        offHeapReader.close();
+    }
+
+    private static int[] shuffled(Random random, int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    @Benchmark
+    public long usersIterate() {
+        long sum = 0;
+        for (Json user : users) sum += user.get("age").asInteger();
+        return sum;
+    }
+
+    @Benchmark
+    public long usersRandom() {
+        long sum = 0;
+        for (int i : order) sum += users.get(i).get("age").asInteger();
+        return sum;
+    }
+
+    @Benchmark
+    public long usersOffHeapRandom() {
+        long sum = 0;
+        for (int i : order) sum += offHeapUsers.get(i).get("age").asInteger();
+        return sum;
+    }
+
+    @Benchmark
+    public long usersCursor() {
+        long sum = 0;
+        JsonCursor cursor = this.cursor.reset(users);
+        cursor.enterArray();
+        while (cursor.nextElement()) {
+            if (!cursor.enterObject()) continue;
+            while (cursor.nextField()) {
+                if (cursor.fieldNameEquals("age")) sum += cursor.readInt();
+            }
+            cursor.exit();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long usersStream() {
+        return users.stream().mapToLong(user -> user.get("age").asInteger()).sum();
+    }
+
+    @Benchmark
+    public long usersProjection() {
+        int rows = AGE.project(users, column);
+        long sum = 0;
+        for (int i = 0; i < rows; i++) sum += column[i];
+        return sum;
+    }
+
+    @Benchmark
+    public long usersJsoniterRandom() {
+        long sum = 0;
+        for (int i : order) sum += usersAny.get(i).get("age").toInt();
+        return sum;
+    }
+
+    @Benchmark
+    public long usersJdkRandom() {
+        long sum = 0;
+        for (int i : order) sum += ages[i];
+        return sum;
+    }
+
+    @Benchmark
+    public long wideRandom() {
+        long sum = 0;
+        for (String key : keys) sum += wide.get(key).asInteger();
+        return sum;
+    }
+
+    @Benchmark
+    public long wideNestedRandom() {
+        long sum = 0;
+        for (String key : keys) sum += wideNested.get("config").get(key).asInteger();
+        return sum;
+    }
+
+    @Benchmark
+    public long wideJsoniterRandom() {
+        long sum = 0;
+        for (String key : keys) sum += wideAny.get(key).toInt();
+        return sum;
+    }
+
+    @Benchmark
+    public long wideJdkRandom() {
+        long sum = 0;
+        for (String key : keys) sum += wideMap.get(key);
+        return sum;
+    }
+
+    @Benchmark
+    public long deepIterate() {
+        Json values = deep;
+        for (int i = 0; i < TestJson.depth - 1; i++) values = values.get(0);
+        long sum = 0;
+        for (Json value : values) sum += value.asInteger();
+        return sum;
+    }
+
+    @Benchmark
+    public long deepJsoniterIterate() {
+        Any values = deepAny;
+        for (int i = 0; i < TestJson.depth - 1; i++) values = values.get(0);
+        long sum = 0;
+        for (Any value : values) sum += value.toInt();
+        return sum;
+    }
+}
@@ -0,0 +1,118 @@
+package bench;
+
+import com.darianopolis.dmj.json.JsonReader;
+import dev.TestJson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Payloads shared by the benchmarks. Every payload is generated from a fixed seed, so that runs are comparable.
+ *
+ * tags     TestJson.tagCountString with its single user repeated, the tag count workload
+ * numbers  an array of objects holding integers and doubles
+ * strings  an array of objects holding strings, some with escapes and non ASCII characters
+ * wide     a single object with WIDE_KEYS keys
+ * deep     TestJson.createHorriblyMassiveJsonArray(), an array of numbers nested TestJson.depth arrays deep
+ */
+public class BenchData {
+    public static final int USERS = 2000;
+    public static final int ROWS = 20000;
+    public static final int WIDE_KEYS = 10000;
+
+    public static String payload(String name) {
+        switch (name) {
+            case "tags": return users(USERS);
+            case "numbers": return numbers(ROWS);
+            case "strings": return strings(ROWS);
+            case "wide": return wide(WIDE_KEYS);
+            case "deep": return TestJson.createHorriblyMassiveJsonArray();
+            default: throw new IllegalArgumentException("Unknown payload: "+ name);
+        }
+    }
+
+    public static byte[] bytes(String name) {
+        return payload(name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns { "users": [ .. ] } with the user of TestJson.tagCountString repeated count times,
+     *   each with its own age.
+     */
+    public static String users(int count) {
+        String user = JsonReader.read(TestJson.tagCountString).get("users").get(0).asRaw().strip();
+        int age = user.indexOf("\"age\": 27");
+        StringBuilder builder = new StringBuilder("{\"users\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(user, 0, age).append("\"age\": ").append(i % 100).append(user, age + 9, user.length());
+        }
+        return builder.append("]}").toString();
+    }
+
+    public static String numbers(int count) {
+        Random random = new Random(1);
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"id\":").append(i)
+                .append(",\"count\":").append(random.nextInt(1000000))
+                .append(",\"price\":").append(random.nextInt(100000) / 100.0)
+                .append(",\"ratio\":").append(random.nextDouble())
+                .append(",\"big\":").append(random.nextLong())
+                .append('}');
+        }
+        return builder.append(']').toString();
+    }
+
+    public static String strings(int count) {
+        Random random = new Random(2);
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"name\":\"").append(word(random, 12))
+                .append("\",\"email\":\"").append(word(random, 8)).append('@').append(word(random, 6)).append(".com")
+                .append("\",\"quote\":\"").append(word(random, 10)).append("\\\"").append(word(random, 6)).append("\\n")
+                .append("\",\"city\":\"").append((i % 7 == 0) ? "Zürich" : word(random, 9))
+                .append("\"}");
+        }
+        return builder.append(']').toString();
+    }
+
+    public static String wide(int keys) {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("\"key").append(i).append("\":").append(i);
+        }
+        return builder.append('}').toString();
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    /**
+     * JDK only baseline for indexing, a single pass that counts the structural characters outside of strings.
+     * No index is stored, so this is a lower bound on the cost of any indexer that looks at every byte.
+     */
+    public static int countStructural(byte[] json) {
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < json.length; i++) {
+            byte b = json[i];
+            if (quoted) {
+                if (b == '\\') i++;
+                else if (b == '"') quoted = false;
+                continue;
+            }
+            switch (b) {
+                case '"': quoted = true; break;
+                case '{': case '}': case '[': case ']': case ':': case ',': count++; break;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,20 @@
+package bench;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the benchmarks of this module, replacing the single cold stopwatch runs of dev.TestJson.
+ *
+ * The benchmarks are found through the list generated by the JMH annotation processor, which is enabled for the
+ *   dmj-json-bench module in the project compiler settings, and by bench/pom.xml, which builds the same module from
+ *   the command line into bench/target/benchmarks.jar with this as its main class. Any arguments are passed on to
+ *   JMH, e.g.
+ *   IndexBenchmark -p payload=tags       to run a single benchmark class with a single payload
+ *   -prof gc                             to report allocation per operation
+ * Without arguments every benchmark is run with the gc profiler, so that allocation is always reported.
+ */
+public class BenchMain {
+    public static void main(String[] args) throws Exception {
+        Main.main(args.length > 0 ? args : new String[] { "-prof", "gc" });
+    }
+}
@@ -0,0 +1,86 @@
+package bench;
+
+import com.darianopolis.dmj.json.Json;
+import com.darianopolis.dmj.json.JsonReader;
+import com.jsoniter.JsonIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing throughput of every payload of BenchData, from bytes and from a String.
+ * The bytes aux counter reports the payload bytes processed per second, i.e. MB/s once divided by 10^6. Benchmarks
+ *   over the String report chars instead, as the chars counter, which is lower for payloads with non ASCII text.
+ *
+ * jsoniterSkip walks the whole document without binding it, the closest equivalent of building an index.
+ * jdkScan is the JDK only lower bound, see BenchData.countStructural.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class IndexBenchmark {
+    @Param({"tags", "numbers", "strings", "wide", "deep"})
+    public String payload;
+
+    private String string;
+    private byte[] bytes;
+    private JsonReader reader;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Chars {
+        public long chars;
+    }
+
+    @Setup
+    public void setup() {
+        string = BenchData.payload(payload);
+        bytes = BenchData.bytes(payload);
+        reader = new JsonReader();
+    }
+
+    @Benchmark
+    public Json dmjBytes(Bytes counter) {
+        counter.bytes += bytes.length;
+        return reader.reset(bytes);
+    }
+
+    @Benchmark
+    public Json dmjString(Chars counter) {
+        counter.chars += string.length();
+        return reader.reset(string);
+    }
+
+    /**
+     * A new reader per document, as with the static read functions, including the allocation of its index.
+     */
+    @Benchmark
+    public Json dmjNewReader(Bytes counter) {
+        counter.bytes += bytes.length;
+        return JsonReader.read(bytes);
+    }
+
+    @Benchmark
+    public JsonIterator jsoniterSkip(Bytes counter) throws IOException {
+        counter.bytes += bytes.length;
+        JsonIterator iter = JsonIterator.parse(bytes);
+        iter.skip();
+        return iter;
+    }
+
+    @Benchmark
+    public int jdkScan(Bytes counter) {
+        counter.bytes += bytes.length;
+        return BenchData.countStructural(bytes);
+    }
+}
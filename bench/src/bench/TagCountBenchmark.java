@@ -0,0 +1,100 @@
+package bench;
+
+import com.darianopolis.dmj.json.Json;
+import com.darianopolis.dmj.json.JsonCursor;
+import com.darianopolis.dmj.json.JsonPath;
+import com.darianopolis.dmj.json.JsonReader;
+import com.jsoniter.JsonIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tag count workload of TestJson, counting the tags of every user of the tags payload.
+ * Every operation indexes or parses the document and then counts, in the same way as TestJson.testTagCountJson()
+ *   and TestJson.testTagCountJsoniter().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TagCountBenchmark {
+    private static final JsonPath TAGS = JsonPath.compile("/users/*/tags/*");
+
+    private byte[] bytes;
+    private JsonReader reader;
+    private JsonCursor cursor;
+
+    @Setup
+    public void setup() {
+        bytes = BenchData.bytes("tags");
+        reader = new JsonReader();
+        cursor = new JsonCursor();
+    }
+
+    @Benchmark
+    public int dmjIterate() {
+        int count = 0;
+        for (Json user : reader.reset(bytes).get("users")) {
+            for (Json tag : user.get("tags")) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int dmjCursor() {
+        reader.reset(bytes);
+        JsonCursor cursor = this.cursor.reset(reader);
+        int count = 0;
+        cursor.enterObject();
+        while (cursor.nextField()) {
+            if (!cursor.fieldNameEquals("users") || !cursor.enterArray()) continue;
+            while (cursor.nextElement()) {
+                if (!cursor.enterObject()) continue;
+                while (cursor.nextField()) {
+                    if (!cursor.fieldNameEquals("tags") || !cursor.enterArray()) continue;
+                    while (cursor.nextElement()) count++;
+                    cursor.exit();
+                }
+                cursor.exit();
+            }
+            cursor.exit();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int dmjPath() {
+        int[] count = { 0 };
+        TAGS.forEach(reader.reset(bytes), tag -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public int jsoniterIterator() throws IOException {
+        JsonIterator iter = JsonIterator.parse(bytes);
+        int count = 0;
+        for (String field = iter.readObject(); field != null; field = iter.readObject()) {
+            if (!field.equals("users")) {
+                iter.skip();
+                continue;
+            }
+            while (iter.readArray()) {
+                for (String field2 = iter.readObject(); field2 != null; field2 = iter.readObject()) {
+                    if (!field2.equals("tags")) {
+                        iter.skip();
+                        continue;
+                    }
+                    while (iter.readArray()) {
+                        iter.skip();
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
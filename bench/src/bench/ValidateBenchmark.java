@@ -0,0 +1,75 @@
+package bench;
+
+import com.darianopolis.dmj.json.Json;
+import com.darianopolis.dmj.json.JsonReader;
+import com.darianopolis.dmj.json.JsonValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation throughput of every payload of BenchData, with the bytes aux counter as in IndexBenchmark.
+ *
+ * dmjChunks feeds the payload in CHUNK sized pieces from a direct buffer, as a gateway would from the network.
+ * dmjStrict indexes the payload in strict mode, which validates and indexes in one pass.
+ * devValidator is the char by char dev.JsonValidator that JsonValidator replaces, which reads the String of the
+ *   payload and so counts chars.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ValidateBenchmark {
+    private static final int CHUNK = 16 << 10;
+
+    @Param({"tags", "numbers", "strings", "wide", "deep"})
+    public String payload;
+
+    private String string;
+    private byte[] bytes;
+    private ByteBuffer direct;
+    private JsonValidator validator;
+    private JsonReader reader;
+
+    @Setup
+    public void setup() {
+        string = BenchData.payload(payload);
+        bytes = BenchData.bytes(payload);
+        direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        validator = new JsonValidator();
+        reader = new JsonReader();
+        reader.setStrict(true);
+    }
+
+    @Benchmark
+    public boolean dmjBytes(IndexBenchmark.Bytes counter) {
+        counter.bytes += bytes.length;
+        return validator.reset().update(bytes) && validator.finish();
+    }
+
+    @Benchmark
+    public boolean dmjChunks(IndexBenchmark.Bytes counter) {
+        counter.bytes += bytes.length;
+        validator.reset();
+        for (int i = 0; i < bytes.length; i += CHUNK) {
+            direct.limit(Math.min(i + CHUNK, bytes.length)).position(i);
+            if (!validator.update(direct)) return false;
+        }
+        return validator.finish();
+    }
+
+    @Benchmark
+    public Json dmjStrict(IndexBenchmark.Bytes counter) {
+        counter.bytes += bytes.length;
+        return reader.reset(bytes);
+    }
+
+    @Benchmark
+    public boolean devValidator(IndexBenchmark.Chars counter) {
+        counter.chars += string.length();
+        return new dev.JsonValidator().validate(string);
+    }
+}
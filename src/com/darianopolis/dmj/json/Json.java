@@ -3,9 +3,14 @@ package com.darianopolis.dmj.json;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface Json extends Iterator<Json>, Iterable<Json> {
     String asString();
+    CharSequence asCharSequence();
+    boolean contentEquals(CharSequence other);
     int asInteger();
     long asLong();
     double asDouble();
@@ -14,14 +19,35 @@ public interface Json extends Iterator<Json>, Iterable<Json> {
     BigDecimal asBigDecimal();
     String asRaw();
     boolean asBoolean();
-    Json get(String key);
+    Json get(CharSequence key);
     Json get(int index);
+    int size();
+    default int length() {
+        return size();
+    }
     String getKey();
     @Override
     Json iterator();
     default Json next() {
         return this;
     }
+
+    /**
+     * Returns the elements of an array or the values of an object, each as a separate Json.
+     * The stream is sized and splits on element boundaries, see JsonSpliterator.
+     */
+    default Stream<Json> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    default Stream<Json> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Returns the key and value of every mapping of an object, or an empty stream for any other value.
+     */
+    Stream<Map.Entry<String, Json>> entries();
 //    boolean nextValue();
 //    boolean nextObject();
 //    Json asObject();
@@ -0,0 +1,105 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Arrays;
+
+/**
+ * A read only copy of the symbols of a document in about half of the memory, see the Compact Index section of
+ *   JsonReader. get(i) returns the same value as symbols[i] would have.
+ *
+ * Every symbol is a 16 bit entry in the same position as in the symbols array, and the entries are split into
+ *   blocks of BLOCK entries, each with a 32 bit checkpoint:
+ *   0x0000 - 0x7FFF  a position, as the offset from the checkpoint of its block, the lowest position in the block
+ *   0x8000           the -1 sentinel of an empty array or object
+ *   0x8001 - 0xFFFE  a jump, as the distance from the jump entry to the close bracket it refers to
+ *   0xFFFF           an escape, for any other value, which is kept in full in an overflow array
+ * Positions within a block rarely span more than 32K as a block covers BLOCK symbols, and jumps only escape for
+ *   structures of more than 32K symbols, so that escapes are rare. The overflow values of each block are stored
+ *   in order from the first overflow index of the block, and an escape is found by counting the escapes before
+ *   it within its block.
+ */
+final class JsonCompactSymbols {
+    private static final int BLOCK_SHIFT = 7;
+    private static final int BLOCK = 1 << BLOCK_SHIFT;
+    private static final int JUMP = 0x8000;
+    private static final int MAX_OFFSET = 0x7FFF;
+    private static final int ESCAPE = 0xFFFF;
+
+    private final char[] entries;
+    /** Per block, the checkpoint followed by the index of its first overflow value */
+    private final int[] blocks;
+    private final int[] overflow;
+
+    private JsonCompactSymbols(char[] entries, int[] blocks, int[] overflow) {
+        this.entries = entries;
+        this.blocks = blocks;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Encodes the first count symbols.
+     */
+    static JsonCompactSymbols encode(int[] symbols, int count) {
+        char[] entries = new char[count];
+        int[] blocks = new int[((count + BLOCK - 1) >>> BLOCK_SHIFT) << 1];
+        int[] overflow = new int[16];
+        int overflowCount = 0;
+
+        for (int block = 0; block << BLOCK_SHIFT < count; block++) {
+            int from = block << BLOCK_SHIFT, to = Math.min(from + BLOCK, count);
+            int checkpoint = Integer.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                if (symbols[i] >= 0) checkpoint = Math.min(checkpoint, symbols[i]);
+            }
+            if (checkpoint == Integer.MAX_VALUE) checkpoint = 0;
+            blocks[block << 1] = checkpoint;
+            blocks[(block << 1) + 1] = overflowCount;
+
+            for (int i = from; i < to; i++) {
+                int symbol = symbols[i];
+                int entry = ESCAPE;
+                if (symbol >= 0) {
+                    if (symbol - checkpoint <= MAX_OFFSET) entry = symbol - checkpoint;
+                } else if (symbol == -1) {
+                    entry = JUMP;
+                } else if (symbol != Integer.MIN_VALUE && -symbol - i > 0 && -symbol - i < MAX_OFFSET) {
+                    entry = JUMP + (-symbol - i);
+                }
+                if (entry == ESCAPE) {
+                    if (overflowCount == overflow.length) overflow = Arrays.copyOf(overflow, overflowCount * 2);
+                    overflow[overflowCount++] = symbol;
+                }
+                entries[i] = (char) entry;
+            }
+        }
+        return new JsonCompactSymbols(entries, blocks, Arrays.copyOf(overflow, overflowCount));
+    }
+
+    int get(int i) {
+        int entry = entries[i];
+        if (entry < JUMP) return blocks[(i >>> BLOCK_SHIFT) << 1] + entry;
+        if (entry == ESCAPE) return escaped(i);
+        return (entry == JUMP) ? -1 : JUMP - entry - i;
+    }
+
+    private int escaped(int i) {
+        int from = i & -BLOCK, index = blocks[((i >>> BLOCK_SHIFT) << 1) + 1];
+        for (int j = from; j < i; j++) {
+            if (entries[j] == ESCAPE) index++;
+        }
+        return overflow[index];
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the encoding, for comparison with 4 bytes per symbol.
+     */
+    long bytes() {
+        return 2L * entries.length + 4L * blocks.length + 4L * overflow.length;
+    }
+}
@@ -0,0 +1,52 @@
+package com.darianopolis.dmj.json;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event recorded whenever the element index of an array or the key index of an object is built, which
+ *   happens on the first access by number or key that is not served by the index cache or a shape prediction.
+ * Many events for containers of the same size point at a caller that keeps navigating containers through new
+ *   pointers, where the index cache is too small for its working set.
+ */
+@Name("com.darianopolis.dmj.json.ContainerIndex")
+@Label("Json Container Index")
+@Category({ "dmj-json" })
+@Description("Lazy indexing of the elements of an array or the keys of an object")
+final class JsonContainerEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(JsonContainerEvent.class);
+
+    @Label("Kind")
+    @Description("array or object")
+    String kind;
+
+    @Label("Size")
+    @Description("Number of elements or keys indexed")
+    int size;
+
+    @Label("Symbol")
+    @Description("Symbol index of the open bracket of the container")
+    int symbol;
+
+    /**
+     * Returns a new event that has begun, or null if no recording has the event enabled.
+     */
+    static JsonContainerEvent start() {
+        if (!TYPE.isEnabled()) return null;
+        JsonContainerEvent event = new JsonContainerEvent();
+        event.begin();
+        return event;
+    }
+
+    void end(String kind, int size, int symbol) {
+        if (!shouldCommit()) return;
+        this.kind = kind;
+        this.size = size;
+        this.symbol = symbol;
+        commit();
+    }
+}
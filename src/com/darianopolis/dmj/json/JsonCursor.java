@@ -0,0 +1,197 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Arrays;
+
+/**
+ * A mutable cursor that walks the symbol index of a JsonReader without allocating anything per value.
+ *
+ * The cursor is always positioned at a single value, held as the index of the symbol preceding it in the same
+ *   way as a JsonPointer. Entering an array or object pushes that symbol onto a primitive stack, and the
+ *   elements or fields of the container are then visited in order with nextElement() or nextField(). Any part
+ *   of a value that is not read is skipped over through its jump when moving on, so values never have to be
+ *   consumed explicitly. exit() returns to the container, from where its siblings can be visited in turn.
+ *
+ * E.g. for { "users": [ { "id": 1 }, { "id": 2 } ] }
+ *   cursor.enterObject();
+ *   while (cursor.nextField()) {
+ *       if (!cursor.fieldNameEquals("users") || !cursor.enterArray()) continue;
+ *       while (cursor.nextElement()) {
+ *           if (!cursor.enterObject()) continue;
+ *           while (cursor.nextField()) if (cursor.fieldNameEquals("id")) sum += cursor.readInt();
+ *           cursor.exit();
+ *       }
+ *       cursor.exit();
+ *   }
+ *
+ * A cursor can be moved to another document with reset(..), and keeps its stack between documents.
+ */
+public class JsonCursor {
+    private JsonReader reader;
+    private int value;
+    private boolean started;
+
+    /** The symbols preceding each entered container */
+    private int[] stack = new int[16];
+    private int depth;
+
+    public JsonCursor() {}
+
+    public JsonCursor(Json root) {
+        reset(root);
+    }
+
+    /**
+     * Positions this cursor at the root of a reader's document.
+     */
+    public JsonCursor reset(JsonReader reader) {
+        this.reader = reader;
+        value = -1;
+        depth = 0;
+        return this;
+    }
+
+    /**
+     * Positions this cursor at a value, which then acts as the root of the cursor.
+     */
+    public JsonCursor reset(Json root) {
+        if (!(root instanceof JsonPointer)) throw new IllegalArgumentException("Expected a value of a document");
+        JsonPointer pointer = (JsonPointer) root;
+        reset(pointer.reader);
+        value = pointer.index;
+        return this;
+    }
+
+    /**
+     * Enters the current value if it is an object, ready for nextField(). Returns false otherwise.
+     */
+    public boolean enterObject() {
+        return enter('{');
+    }
+
+    /**
+     * Enters the current value if it is an array, ready for nextElement(). Returns false otherwise.
+     */
+    public boolean enterArray() {
+        return enter('[');
+    }
+
+    private boolean enter(char bracket) {
+        int start = reader.next(value);
+        if (reader.getChar(start) != bracket) return false;
+        if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = value;
+        value = start;
+        started = false;
+        return true;
+    }
+
+    /**
+     * Moves to the value of the next field of the current object. Returns false after the last field.
+     */
+    public boolean nextField() {
+        return skipValue();
+    }
+
+    /**
+     * Moves to the next element of the current array. Returns false after the last element.
+     */
+    public boolean nextElement() {
+        return skipValue();
+    }
+
+    /**
+     * Skips the current value and moves to the following field or element of the current container,
+     *   or to the first one if none has been visited yet. Returns false at the end of the container.
+     */
+    public boolean skipValue() {
+        if (depth == 0) throw new IllegalStateException("Not within an object or array");
+        if (!started) {
+            int start = value;
+            if (reader.isEmpty(start)) return false;
+            started = true;
+            value = (reader.getChar(start) == '{') ? start + 2 : start;
+            return true;
+        }
+
+        int symbol = reader.skipBrackets(reader.next(value));
+        if (reader.getChar(symbol) != ',') return false;
+        value = (reader.getChar(symbol + 1) == ':') ? symbol + 1 : symbol;
+        return true;
+    }
+
+    /**
+     * Leaves the current container, returning to the container value itself.
+     */
+    public void exit() {
+        if (depth == 0) throw new IllegalStateException("Not within an object or array");
+        value = stack[--depth];
+        started = true;
+    }
+
+    /**
+     * Returns the number of containers that have been entered and not exited.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public boolean fieldNameEquals(CharSequence name) {
+        checkField();
+        return reader.contentEquals(reader.prev(value), value, name);
+    }
+
+    public String fieldName() {
+        checkField();
+        return reader.getDecodedString(reader.prev(value), value);
+    }
+
+    private void checkField() {
+        if (value < 0 || reader.getChar(value) != ':') throw new IllegalStateException("Value not in binding!");
+    }
+
+    public int readInt() {
+        return reader.getInt(value, reader.next(value));
+    }
+
+    public long readLong() {
+        return reader.getLong(value, reader.next(value));
+    }
+
+    public double readDouble() {
+        return reader.getDouble(value, reader.next(value));
+    }
+
+    public float readFloat() {
+        return reader.getFloat(value, reader.next(value));
+    }
+
+    public boolean readBoolean() {
+        return reader.getBoolean(value, reader.next(value));
+    }
+
+    public boolean isNull() {
+        return reader.isNull(value, reader.next(value));
+    }
+
+    public String readString() {
+        return reader.getDecodedString(value, reader.next(value));
+    }
+
+    /**
+     * Returns the current string value as a view over the source where possible, see Json.asCharSequence().
+     */
+    public CharSequence readCharSequence() {
+        return reader.getCharSequence(value, reader.next(value));
+    }
+
+    public boolean contentEquals(CharSequence other) {
+        return reader.contentEquals(value, reader.next(value), other);
+    }
+
+    /**
+     * Returns a JsonPointer to the current value, for use with the rest of the api.
+     */
+    public Json value() {
+        return new JsonPointer(reader, value);
+    }
+}
@@ -0,0 +1,62 @@
+package com.darianopolis.dmj.json;
+
+/**
+ * Index of the elements of a single json array, mapping each element number to the symbol index preceding it.
+ *
+ * Arrays of up to DENSE_MAX elements store the symbol of every element in a right sized int[], giving O(1)
+ *   random access. Larger arrays only store every 2^SPARSE_SHIFT'th element, and reach the elements in between
+ *   by skipping forward from the nearest stored one, so that the memory used per array stays a fraction of
+ *   the number of its elements.
+ */
+final class JsonElements {
+    private static final int DENSE_MAX = 1 << 16;
+    private static final int SPARSE_SHIFT = 4;
+
+    private final JsonReader reader;
+    private final int[] elements;
+    private final int size;
+    private final int shift;
+
+    private JsonElements(JsonReader reader, int[] elements, int size, int shift) {
+        this.reader = reader;
+        this.elements = elements;
+        this.size = size;
+        this.shift = shift;
+    }
+
+    /**
+     * Indexes the elements of a non empty array, starting from its open bracket.
+     * The elements are counted first so that the index can be allocated at its final size.
+     * Only the elements that are complete are indexed while the document is still being read incrementally.
+     */
+    static JsonElements of(JsonReader reader, int start) {
+        JsonPointer iter = new JsonPointer(reader, start);
+        int size = 0;
+        while (iter.hasNext()) size++;
+
+        int shift = (size > DENSE_MAX) ? SPARSE_SHIFT : 0;
+        int mask = (1 << shift) - 1;
+        int[] elements = new int[(size + mask) >>> shift];
+        iter.moveTo(start);
+        for (int i = 0; i < size && iter.hasNext(); i++) {
+            if ((i & mask) == 0) elements[i >>> shift] = iter.index;
+        }
+        return new JsonElements(reader, elements, size, shift);
+    }
+
+    /**
+     * Returns the symbol index preceding the i'th element, or -1 if there is no such element.
+     */
+    int get(int i) {
+        if (i < 0 || i >= size) return -1;
+        if (shift == 0) return elements[i];
+
+        int element = elements[i >>> shift];
+        for (int n = i & ((1 << shift) - 1); n > 0; n--) element = reader.skipBrackets(reader.next(element));
+        return element;
+    }
+
+    int size() {
+        return size;
+    }
+}
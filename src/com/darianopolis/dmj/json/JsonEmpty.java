@@ -2,6 +2,10 @@ package com.darianopolis.dmj.json;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
 
 public class JsonEmpty implements Json {
     final static JsonEmpty EMPTY = new JsonEmpty();
@@ -15,6 +19,16 @@ public class JsonEmpty implements Json {
         return "";
     }
 
+    @Override
+    public CharSequence asCharSequence() {
+        return "";
+    }
+
+    @Override
+    public boolean contentEquals(CharSequence other) {
+        return other.length() == 0;
+    }
+
     @Override
     public int asInteger() {
         return 0;
@@ -60,13 +74,28 @@ public class JsonEmpty implements Json {
         return this;
     }
 
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public Spliterator<Json> spliterator() {
+        return Spliterators.emptySpliterator();
+    }
+
+    @Override
+    public Stream<Map.Entry<String, Json>> entries() {
+        return Stream.empty();
+    }
+
     @Override
     public String getKey() {
         throw new IllegalStateException("Empty!");
     }
 
     @Override
-    public Json get(String key) {
+    public Json get(CharSequence key) {
         return this;
     }
 
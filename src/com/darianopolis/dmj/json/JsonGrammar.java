@@ -0,0 +1,261 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Arrays;
+
+/**
+ * Tables of the json grammar, as used by the strict indexing passes of JsonReader.
+ *
+ * The grammar is checked at two levels. Outside of strings every byte is mapped to a token class, and the sequence
+ *   of tokens is checked by a state machine over the structure of the document: which of a value, a key, a colon,
+ *   a comma or a close bracket may come next. The states within an array and within an object are distinct, so
+ *   that commas and close brackets are checked by the table alone. Only on closing a structure does the state
+ *   depend on the structure it was in, which the caller keeps on a stack of one bit per depth, see closed().
+ * Numbers, true, false and null are atoms, maximal runs of bytes that are not whitespace, structural or quotes.
+ *   An atom is a single value token, and its bytes are checked separately by a second state machine that accepts
+ *   exactly the json number grammar and the three literals.
+ * Strings are checked by the caller, for escapes and control characters only. The UTF-8 encoding of a byte
+ *   source is not checked, as decoding replaces any malformed sequence.
+ *
+ * In both state machines 0 is never a valid result of a transition, so that every entry left unset is an error.
+ */
+final class JsonGrammar {
+    /*
+     * Token classes, of which WHITESPACE is handled by the caller and never used as an index into NEXT.
+     */
+    static final int OPEN_OBJECT = 0;
+    static final int OPEN_ARRAY = 1;
+    static final int CLOSE_OBJECT = 2;
+    static final int CLOSE_ARRAY = 3;
+    static final int COLON = 4;
+    static final int COMMA = 5;
+    static final int STRING = 6;
+    static final int ATOM = 7;
+    static final int WHITESPACE = 8;
+
+    /*
+     * Structural states, named after what is expected next. VALUE and AFTER are outside of any structure, and a close
+     *   bracket moves to CLOSED, which is never stored and is replaced by the caller with the result of closed().
+     */
+    static final int ERROR = 0;
+    static final int VALUE = 1;
+    static final int ARRAY_FIRST = 2;
+    static final int ARRAY_VALUE = 3;
+    static final int AFTER_ARRAY = 4;
+    static final int OBJECT_FIRST = 5;
+    static final int KEY = 6;
+    static final int KEY_COLON = 7;
+    static final int OBJECT_VALUE = 8;
+    static final int AFTER_OBJECT = 9;
+    static final int AFTER = 10;
+    static final int CLOSED = 11;
+    private static final int STATES = 11;
+
+    /*
+     * Atom states, where NONE means that no atom is in progress and START is stepped with the first byte of an atom.
+     */
+    static final int NONE = 0;
+    static final int START = 1;
+    private static final int MINUS = 2, ZERO = 3, INTEGER = 4, DOT = 5, FRACTION = 6, EXPONENT_MARK = 7,
+        EXPONENT_SIGN = 8, EXPONENT = 9, T = 10, TR = 11, TRU = 12, TRUE = 13, F = 14, FA = 15, FAL = 16,
+        FALS = 17, FALSE = 18, N = 19, NU = 20, NUL = 21, NULL = 22;
+    private static final long ACCEPTING = 1L << ZERO | 1L << INTEGER | 1L << FRACTION | 1L << EXPONENT
+        | 1L << TRUE | 1L << FALSE | 1L << NULL;
+    /** Atom states that any number of further digits leave unchanged */
+    private static final long DIGIT_RUNS = 1L << INTEGER | 1L << FRACTION | 1L << EXPONENT;
+
+    /*
+     * Atom byte classes, anything not listed is OTHER.
+     */
+    private static final int OTHER = 0, C_MINUS = 1, C_PLUS = 2, C_ZERO = 3, C_DIGIT = 4, C_DOT = 5, C_LOWER_E = 6,
+        C_UPPER_E = 7, C_T = 8, C_R = 9, C_U = 10, C_F = 11, C_A = 12, C_L = 13, C_S = 14, C_N = 15;
+    static final int ATOM_CLASSES = 16;
+
+    /** Token class of every ASCII byte, bytes from 0x80 are atoms */
+    static final byte[] CLASSES = new byte[128];
+    /** Next structural state, indexed by state << 3 | token class */
+    static final byte[] NEXT = new byte[STATES << 3];
+    /** Atom class of every byte, indexed by the unsigned byte value */
+    static final byte[] ATOM_CLASS = new byte[256];
+    /** Next atom state, indexed by state * ATOM_CLASSES + atom class */
+    static final byte[] ATOMS = new byte[(NULL + 1) * ATOM_CLASSES];
+
+    static {
+        Arrays.fill(CLASSES, (byte) ATOM);
+        CLASSES['{'] = OPEN_OBJECT;
+        CLASSES['['] = OPEN_ARRAY;
+        CLASSES['}'] = CLOSE_OBJECT;
+        CLASSES[']'] = CLOSE_ARRAY;
+        CLASSES[':'] = COLON;
+        CLASSES[','] = COMMA;
+        CLASSES['"'] = STRING;
+        CLASSES[' '] = CLASSES['\t'] = CLASSES['\n'] = CLASSES['\r'] = WHITESPACE;
+
+        for (int state : new int[] { VALUE, ARRAY_FIRST, ARRAY_VALUE, OBJECT_VALUE }) {
+            int after = (state == VALUE) ? AFTER : (state == OBJECT_VALUE) ? AFTER_OBJECT : AFTER_ARRAY;
+            next(state, OPEN_OBJECT, OBJECT_FIRST);
+            next(state, OPEN_ARRAY, ARRAY_FIRST);
+            next(state, STRING, after);
+            next(state, ATOM, after);
+        }
+        next(ARRAY_FIRST, CLOSE_ARRAY, CLOSED);
+        next(AFTER_ARRAY, COMMA, ARRAY_VALUE);
+        next(AFTER_ARRAY, CLOSE_ARRAY, CLOSED);
+        next(OBJECT_FIRST, STRING, KEY_COLON);
+        next(OBJECT_FIRST, CLOSE_OBJECT, CLOSED);
+        next(KEY, STRING, KEY_COLON);
+        next(KEY_COLON, COLON, OBJECT_VALUE);
+        next(AFTER_OBJECT, COMMA, KEY);
+        next(AFTER_OBJECT, CLOSE_OBJECT, CLOSED);
+
+        ATOM_CLASS['-'] = C_MINUS;
+        ATOM_CLASS['+'] = C_PLUS;
+        ATOM_CLASS['0'] = C_ZERO;
+        for (char c = '1'; c <= '9'; c++) ATOM_CLASS[c] = C_DIGIT;
+        ATOM_CLASS['.'] = C_DOT;
+        ATOM_CLASS['e'] = C_LOWER_E;
+        ATOM_CLASS['E'] = C_UPPER_E;
+        ATOM_CLASS['t'] = C_T;
+        ATOM_CLASS['r'] = C_R;
+        ATOM_CLASS['u'] = C_U;
+        ATOM_CLASS['f'] = C_F;
+        ATOM_CLASS['a'] = C_A;
+        ATOM_CLASS['l'] = C_L;
+        ATOM_CLASS['s'] = C_S;
+        ATOM_CLASS['n'] = C_N;
+
+        atom(START, C_MINUS, MINUS);
+        atom(START, C_ZERO, ZERO);
+        atom(START, C_DIGIT, INTEGER);
+        atom(MINUS, C_ZERO, ZERO);
+        atom(MINUS, C_DIGIT, INTEGER);
+        atom(INTEGER, C_ZERO, INTEGER);
+        atom(INTEGER, C_DIGIT, INTEGER);
+        for (int state : new int[] { ZERO, INTEGER }) atom(state, C_DOT, DOT);
+        atom(DOT, C_ZERO, FRACTION);
+        atom(DOT, C_DIGIT, FRACTION);
+        atom(FRACTION, C_ZERO, FRACTION);
+        atom(FRACTION, C_DIGIT, FRACTION);
+        for (int state : new int[] { ZERO, INTEGER, FRACTION }) {
+            atom(state, C_LOWER_E, EXPONENT_MARK);
+            atom(state, C_UPPER_E, EXPONENT_MARK);
+        }
+        atom(EXPONENT_MARK, C_PLUS, EXPONENT_SIGN);
+        atom(EXPONENT_MARK, C_MINUS, EXPONENT_SIGN);
+        for (int state : new int[] { EXPONENT_MARK, EXPONENT_SIGN, EXPONENT }) {
+            atom(state, C_ZERO, EXPONENT);
+            atom(state, C_DIGIT, EXPONENT);
+        }
+
+        atom(START, C_T, T);
+        atom(T, C_R, TR);
+        atom(TR, C_U, TRU);
+        atom(TRU, C_LOWER_E, TRUE);
+        atom(START, C_F, F);
+        atom(F, C_A, FA);
+        atom(FA, C_L, FAL);
+        atom(FAL, C_S, FALS);
+        atom(FALS, C_LOWER_E, FALSE);
+        atom(START, C_N, N);
+        atom(N, C_U, NU);
+        atom(NU, C_L, NUL);
+        atom(NUL, C_L, NULL);
+    }
+
+    private JsonGrammar() {}
+
+    private static void next(int state, int token, int next) {
+        NEXT[state << 3 | token] = (byte) next;
+    }
+
+    private static void atom(int state, int atomClass, int next) {
+        ATOMS[state * ATOM_CLASSES + atomClass] = (byte) next;
+    }
+
+    /**
+     * Returns the token class of a byte or char outside of a string.
+     */
+    static int token(int c) {
+        return (c < 0x80) ? CLASSES[c] : ATOM;
+    }
+
+    /**
+     * Returns the structural state following a token, or ERROR.
+     */
+    static int next(int state, int token) {
+        return NEXT[state << 3 | token];
+    }
+
+    /**
+     * Returns the state following a close bracket, given whether the structure it returns to is an object,
+     *   with a depth of 0 once every structure has been closed.
+     */
+    static int closed(int depth, boolean object) {
+        return (depth == 0) ? AFTER : object ? AFTER_OBJECT : AFTER_ARRAY;
+    }
+
+    /**
+     * Returns the atom state following a byte or char, or NONE if the atom can no longer be valid.
+     */
+    static int step(int atom, int c) {
+        return ATOMS[atom * ATOM_CLASSES + ATOM_CLASS[(c < 0x100) ? c : 0]];
+    }
+
+    /**
+     * Returns whether an atom that ends in the given state is a complete number or literal.
+     */
+    static boolean accepts(int atom) {
+        return (ACCEPTING >>> atom & 1) != 0;
+    }
+
+    /**
+     * Returns whether an atom stays in the same state for any run of digits, which may then be skipped.
+     */
+    static boolean repeatsDigits(int atom) {
+        return (DIGIT_RUNS >>> atom & 1) != 0;
+    }
+
+    static boolean isEscape(int c) {
+        switch (c) {
+            case '"': case '\\': case '/': case 'b': case 'f': case 'n': case 'r': case 't': case 'u':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isHex(int c) {
+        return (c >= '0' && c <= '9') || ((c | 0x20) >= 'a' && (c | 0x20) <= 'f');
+    }
+
+    /**
+     * Describes what may follow in a structural state, for error messages.
+     */
+    static String expected(int state) {
+        switch (state) {
+            case VALUE: case ARRAY_VALUE: case OBJECT_VALUE: return "a value";
+            case ARRAY_FIRST: return "a value or ]";
+            case AFTER_ARRAY: return ", or ]";
+            case OBJECT_FIRST: return "a key or }";
+            case KEY: return "a key";
+            case KEY_COLON: return ":";
+            case AFTER_OBJECT: return ", or }";
+            default: return "EOF";
+        }
+    }
+
+    static String describe(int c) {
+        return (c > ' ' && c < 0x7F) ? "'"+ (char) c +"'" : String.format("0x%02X", c);
+    }
+
+    static IllegalStateException unexpected(int c, long position, int state) {
+        return new IllegalStateException("Unexpected "+ describe(c) +" at "+ position +", expected "+ expected(state));
+    }
+
+    static IllegalStateException invalidAtom(long position) {
+        return new IllegalStateException("Invalid number or literal at "+ position);
+    }
+
+    static IllegalStateException invalidString(int c, long position) {
+        return new IllegalStateException("Invalid "+ describe(c) +" in string at "+ position);
+    }
+}
@@ -0,0 +1,70 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of the element and key indexes of a reader's containers, keyed by the symbol index of their
+ *   open bracket.
+ *
+ * The cache is two way set associative. Each symbol maps to a set of two entries, and a miss replaces the least
+ *   recently used entry of its set, so the cache never grows beyond its capacity and a hit allocates nothing.
+ * Entries are immutable and are only ever replaced as a whole. Navigating the same document from several threads
+ *   can therefore at worst lose an entry, and can never observe the index of a different container.
+ * Repeated hits on the same entry only read the cache, so that threads sharing a document do not contend on it.
+ */
+final class JsonIndexCache {
+    private static final class Entry {
+        final int symbol;
+        final Object index;
+
+        Entry(int symbol, Object index) {
+            this.symbol = symbol;
+            this.index = index;
+        }
+    }
+
+    private final Entry[] entries;
+    /** Way of each set that was used most recently */
+    private final byte[] recent;
+    private final int shift;
+
+    JsonIndexCache(int capacity) {
+        int sets = Math.max(1, Integer.highestOneBit(Math.max(2, capacity) - 1));
+        entries = new Entry[sets * 2];
+        recent = new byte[sets];
+        shift = 32 - Integer.numberOfTrailingZeros(sets);
+    }
+
+    Object get(int symbol) {
+        int set = set(symbol);
+        Entry entry = entries[set << 1];
+        if (entry != null && entry.symbol == symbol) {
+            if (recent[set] != 0) recent[set] = 0;
+            return entry.index;
+        }
+        entry = entries[(set << 1) + 1];
+        if (entry != null && entry.symbol == symbol) {
+            if (recent[set] != 1) recent[set] = 1;
+            return entry.index;
+        }
+        return null;
+    }
+
+    void put(int symbol, Object index) {
+        int set = set(symbol);
+        int way = (entries[set << 1] == null) ? 0 : 1 - recent[set];
+        entries[(set << 1) + way] = new Entry(symbol, index);
+        recent[set] = (byte) way;
+    }
+
+    void clear() {
+        Arrays.fill(entries, null);
+    }
+
+    /**
+     * Returns the set that a symbol maps to.
+     */
+    int set(int symbol) {
+        return (shift == 32) ? 0 : (symbol * 0x9E3779B9) >>> shift;
+    }
+}
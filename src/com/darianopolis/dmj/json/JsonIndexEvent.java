@@ -0,0 +1,63 @@
+package com.darianopolis.dmj.json;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event recorded for every document indexed by a JsonReader, from the start of indexing to the finished index.
+ * For documents read incrementally the event spans from begin() to finish(), and so includes the time spent
+ *   waiting for the document to arrive.
+ *
+ * Events are only created while a recording has the event enabled, see start(), so that indexing allocates nothing
+ *   for them otherwise. See JsonMetrics for counters that do not need a recording.
+ */
+@Name("com.darianopolis.dmj.json.Index")
+@Label("Json Index")
+@Category({ "dmj-json" })
+@Description("Indexing of a json document into its symbol index")
+final class JsonIndexEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(JsonIndexEvent.class);
+
+    @Label("Source")
+    @Description("chars, bytes, mapped, lines or incremental")
+    String source;
+
+    @Label("Length")
+    @Description("Length of the source, in chars for String sources and bytes otherwise")
+    @DataAmount
+    long length;
+
+    @Label("Symbols")
+    int symbols;
+
+    @Label("Resizes")
+    @Description("Number of times the symbols array had to grow")
+    int resizes;
+
+    /**
+     * Returns a new event that has begun, or null if no recording has the event enabled.
+     */
+    static JsonIndexEvent start() {
+        if (!TYPE.isEnabled()) return null;
+        JsonIndexEvent event = new JsonIndexEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits this event for a reader that has just finished indexing, if the event is enabled.
+     */
+    void end(JsonReader reader, String source) {
+        if (!shouldCommit()) return;
+        this.source = source;
+        length = reader.length;
+        symbols = reader.symbolIndex;
+        resizes = reader.resizes;
+        commit();
+    }
+}
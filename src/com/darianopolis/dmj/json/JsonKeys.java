@@ -0,0 +1,132 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Arrays;
+
+/**
+ * Index of the keys of a single json object, mapping each key to the symbol index of its : binding.
+ *
+ * Keys are never extracted from the source. Each key is hashed in place with the same function as
+ *   String.hashCode(), and stored in an open addressing table of int slots with linear probing. Lookups
+ *   hash the requested CharSequence the same way and compare candidates against the source directly.
+ * Objects with at most LINEAR_SCAN_MAX keys are searched by a linear scan instead, as comparing a handful
+ *   of keys in place is cheaper than hashing the requested key.
+ *
+ * Where a key occurs more than once, the last occurrence is found.
+ */
+final class JsonKeys {
+    private static final int LINEAR_SCAN_MAX = 8;
+
+    private final JsonReader reader;
+    /** Symbol index of the binding of each key, in document order */
+    private final int[] bindings;
+    private final int[] hashes;
+    private final int size;
+    /** Index + 1 of the binding held by each slot, 0 for an empty slot. Null for objects that are scanned */
+    private final int[] slots;
+
+    private JsonKeys(JsonReader reader, int[] bindings, int size) {
+        this.reader = reader;
+        this.bindings = bindings;
+        this.size = size;
+        if (size <= LINEAR_SCAN_MAX) {
+            hashes = null;
+            slots = null;
+            return;
+        }
+
+        hashes = new int[size];
+        slots = new int[Integer.highestOneBit(size) << 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int binding = bindings[i];
+            int hash = reader.contentHash(reader.prev(binding), binding);
+            hashes[i] = hash;
+            CharSequence key = null;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot] - 1;
+                if (entry < 0) {
+                    slots[slot] = i + 1;
+                    break;
+                }
+                if (hashes[entry] != hash) continue;
+                if (key == null) key = reader.getCharSequence(reader.prev(binding), binding);
+                if (matches(bindings[entry], key)) {
+                    slots[slot] = i + 1;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the keys of an object, starting from the binding of its first key.
+     * Only the keys that are complete are indexed while the document is still being read incrementally.
+     */
+    static JsonKeys of(JsonReader reader, int first) {
+        int[] bindings = new int[16];
+        int size = 0;
+        JsonPointer iter = new JsonPointer(reader, first);
+        while (iter.hasNext()) {
+            if (size == bindings.length) bindings = Arrays.copyOf(bindings, size * 2);
+            bindings[size++] = iter.index;
+        }
+        return new JsonKeys(reader, Arrays.copyOf(bindings, size), size);
+    }
+
+    /**
+     * Returns the symbol index of the binding of a key, or -1 if the object has no such key.
+     */
+    int get(CharSequence key) {
+        int i = indexOf(key);
+        return (i < 0) ? -1 : bindings[i];
+    }
+
+    /**
+     * Returns the number of the key in document order, or -1 if the object has no such key.
+     */
+    int indexOf(CharSequence key) {
+        if (slots == null) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (matches(bindings[i], key)) return i;
+            }
+            return -1;
+        }
+
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) return -1;
+            if (hashes[entry] == hash && matches(bindings[entry], key)) return entry;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the symbol index of the binding of the i'th key, in document order.
+     */
+    int binding(int i) {
+        return bindings[i];
+    }
+
+    private boolean matches(int binding, CharSequence key) {
+        return reader.contentEquals(reader.prev(binding), binding, key);
+    }
+
+    /**
+     * Hashes a key in the same way as String.hashCode(), using the cached hash of Strings and slices.
+     */
+    static int hash(CharSequence key) {
+        if (key instanceof String || key instanceof JsonSlice) return key.hashCode();
+        int h = 0;
+        for (int i = 0, length = key.length(); i < length; i++) h = 31 * h + key.charAt(i);
+        return h;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,120 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The records of a newline delimited json source, see JsonReader.readLines(..).
+ *
+ * Every record shares the symbol index of a single JsonReader, and is referenced by the symbol index of the
+ *   separator preceding it. Records are only turned into a JsonPointer when they are handed out, and since
+ *   the index is never modified after it has been built, records can be navigated from any number of threads.
+ * spliterator() splits the records evenly by count, for use with parallel streams or any other fork-join consumer.
+ */
+public class JsonLines implements Iterable<Json> {
+    public final JsonReader reader;
+    private final int[] records;
+
+    JsonLines(JsonReader reader, int[] records) {
+        this.reader = reader;
+        this.records = records;
+    }
+
+    /**
+     * Returns the number of records, excluding blank lines.
+     */
+    public int size() {
+        return records.length;
+    }
+
+    /**
+     * Returns a record by its number, counting from 0 and excluding blank lines.
+     */
+    public Json get(int record) {
+        if (record < 0 || record >= records.length) return JsonEmpty.EMPTY;
+        return new JsonPointer(reader, records[record]);
+    }
+
+    @Override
+    public Iterator<Json> iterator() {
+        return new Iterator<Json>() {
+            int record;
+
+            @Override
+            public boolean hasNext() {
+                return record < records.length;
+            }
+
+            @Override
+            public Json next() {
+                if (record >= records.length) throw new NoSuchElementException();
+                return new JsonPointer(reader, records[record++]);
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<Json> spliterator() {
+        return new RecordSpliterator(0, records.length);
+    }
+
+    public Stream<Json> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Json> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Performs an action for every record on the common ForkJoinPool, in no particular order.
+     */
+    public void parallelForEach(Consumer<? super Json> action) {
+        parallelStream().forEach(action);
+    }
+
+    private class RecordSpliterator implements Spliterator<Json> {
+        private int from;
+        private final int to;
+
+        RecordSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Json> action) {
+            if (from >= to) return false;
+            action.accept(new JsonPointer(reader, records[from++]));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Json> action) {
+            for (; from < to; from++) action.accept(new JsonPointer(reader, records[from]));
+        }
+
+        @Override
+        public Spliterator<Json> trySplit() {
+            int middle = (from + to) >>> 1;
+            if (middle <= from) return null;
+            Spliterator<Json> prefix = new RecordSpliterator(from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.darianopolis.dmj.json;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process wide counters of the work done by every JsonReader, for use in production where a profiler is not.
+ *
+ * Counting is enabled with the dmj.json.metrics system property, which is read once when the class is loaded.
+ *   While disabled every counting site is a check of a static final field, which the JIT removes entirely.
+ *   While enabled the counters are LongAdders, so that threads sharing a document do not contend on them,
+ *   and are published over JMX as com.darianopolis.dmj.json:type=JsonMetrics, see JsonMetricsMXBean.
+ *
+ * documents         documents indexed, including sets of json lines
+ * bytes             total length of the indexed sources, in chars for String sources
+ * containerIndexes  element and key indexes built, see JsonContainerEvent
+ * pointers          JsonPointers created, by navigation, iteration or streams
+ * strings           Strings copied out of a source, by decoding a string or reading a raw value
+ * numbers           numbers parsed
+ *
+ * Timing of individual documents and index builds is recorded through JFR instead, see JsonIndexEvent.
+ */
+public final class JsonMetrics implements JsonMetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("dmj.json.metrics");
+
+    private static final JsonMetrics INSTANCE = new JsonMetrics();
+
+    final LongAdder documents = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder containerIndexes = new LongAdder();
+    final LongAdder pointers = new LongAdder();
+    final LongAdder strings = new LongAdder();
+    final LongAdder numbers = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("com.darianopolis.dmj.json:type=JsonMetrics"));
+            } catch (JMException e) {
+                throw new IllegalStateException("Failed to register JsonMetrics", e);
+            }
+        }
+    }
+
+    private JsonMetrics() {}
+
+    /**
+     * Returns the counters, which stay at 0 unless metrics are enabled.
+     */
+    public static JsonMetrics get() {
+        return INSTANCE;
+    }
+
+    static void document(long length) {
+        INSTANCE.documents.increment();
+        INSTANCE.bytes.add(length);
+    }
+
+    static void containerIndex() {
+        INSTANCE.containerIndexes.increment();
+    }
+
+    static void pointer() {
+        INSTANCE.pointers.increment();
+    }
+
+    static void string() {
+        INSTANCE.strings.increment();
+    }
+
+    static void number() {
+        INSTANCE.numbers.increment();
+    }
+
+    @Override
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getContainerIndexes() {
+        return containerIndexes.sum();
+    }
+
+    @Override
+    public long getPointers() {
+        return pointers.sum();
+    }
+
+    @Override
+    public long getStrings() {
+        return strings.sum();
+    }
+
+    @Override
+    public long getNumbers() {
+        return numbers.sum();
+    }
+}
@@ -0,0 +1,14 @@
+package com.darianopolis.dmj.json;
+
+/**
+ * Management interface of JsonMetrics, registered as com.darianopolis.dmj.json:type=JsonMetrics.
+ * Every count is the total since the JVM started, over all readers.
+ */
+public interface JsonMetricsMXBean {
+    long getDocuments();
+    long getBytes();
+    long getContainerIndexes();
+    long getPointers();
+    long getStrings();
+    long getNumbers();
+}
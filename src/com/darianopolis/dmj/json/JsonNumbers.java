@@ -0,0 +1,307 @@
+package com.darianopolis.dmj.json;
+
+import java.math.BigInteger;
+
+/**
+ * Parses numbers, booleans and nulls directly from a range of a reader's source, without extracting a String.
+ *
+ * Integers are accumulated digit by digit with an explicit range check, so that out of range values are
+ *   reported as an overflow rather than as a badly formatted number.
+ *
+ * Doubles and floats are parsed with the Eisel-Lemire algorithm. The decimal significand is read into a
+ *   64 bit integer w along with its power of ten q, and the correctly rounded binary value is computed from
+ *   the product of w with a 128 bit truncation of 5^q. Small exact cases take the classic Clinger fast path.
+ *
+ * Anything that falls outside of these paths (more than 19 significant digits, or any input that is not a
+ *   plain json number such as "+1", "NaN" or "0x1p3") falls back to the java.lang parse methods on the
+ *   extracted string, which preserves their results and error messages for such inputs.
+ */
+final class JsonNumbers {
+    private static final int SMALLEST_POWER_OF_FIVE = -342;
+    private static final int LARGEST_POWER_OF_FIVE = 308;
+
+    /** 128 bit truncated powers of five, normalized so their top bit is set, stored as high then low words */
+    private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private JsonNumbers() {}
+
+    static int parseInt(JsonReader reader, long from, long to) {
+        from = skipWhitespace(reader, from, to);
+        to = trimWhitespace(reader, from, to);
+        long value = parse(reader, from, to, Integer.MIN_VALUE, "int");
+        if (value == NOT_PARSED) return Integer.parseInt(reader.substring(from, to));
+        return (int) value;
+    }
+
+    static long parseLong(JsonReader reader, long from, long to) {
+        from = skipWhitespace(reader, from, to);
+        to = trimWhitespace(reader, from, to);
+        long value = parse(reader, from, to, Long.MIN_VALUE, "long");
+        if (value == NOT_PARSED) return Long.parseLong(reader.substring(from, to));
+        return value;
+    }
+
+    static boolean parseBoolean(JsonReader reader, long from, long to) {
+        from = skipWhitespace(reader, from, to);
+        to = trimWhitespace(reader, from, to);
+        if (to - from != 4) return false;
+        return (reader.charAt(from) | 0x20) == 't' && (reader.charAt(from + 1) | 0x20) == 'r'
+            && (reader.charAt(from + 2) | 0x20) == 'u' && (reader.charAt(from + 3) | 0x20) == 'e';
+    }
+
+    static boolean isNull(JsonReader reader, long from, long to) {
+        from = skipWhitespace(reader, from, to);
+        to = trimWhitespace(reader, from, to);
+        return to - from == 4 && reader.charAt(from) == 'n' && reader.charAt(from + 1) == 'u'
+            && reader.charAt(from + 2) == 'l' && reader.charAt(from + 3) == 'l';
+    }
+
+    static double parseDouble(JsonReader reader, long from, long to) {
+        from = skipWhitespace(reader, from, to);
+        to = trimWhitespace(reader, from, to);
+        long bits = parseFloatingPoint(reader, from, to, false);
+        if (bits == NOT_PARSED) return Double.parseDouble(reader.substring(from, to));
+        return Double.longBitsToDouble(bits);
+    }
+
+    static float parseFloat(JsonReader reader, long from, long to) {
+        from = skipWhitespace(reader, from, to);
+        to = trimWhitespace(reader, from, to);
+        long bits = parseFloatingPoint(reader, from, to, true);
+        if (bits == NOT_PARSED) return Float.parseFloat(reader.substring(from, to));
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    /*
+    *  Integer Parsing
+    */
+
+    /**
+     * Returned when the input is not a plain decimal number, and must be handed to the fallback parser.
+     * The only results it coincides with are Long.MIN_VALUE and the bits of -0.0, which are then simply
+     *   parsed a second time by the fallback.
+     */
+    private static final long NOT_PARSED = Long.MIN_VALUE;
+
+    /**
+     * Parses an optionally negative run of decimal digits, accumulating negatively so that the most
+     *   negative value of the range can be represented.
+     * Returns NOT_PARSED for anything that is not entirely digits, in which case the fallback produces
+     *   the same result or exception as before. Throws an ArithmeticException if the value does not fit.
+     */
+    private static long parse(JsonReader reader, long from, long to, long min, String type) {
+        boolean negative = from < to && reader.charAt(from) == '-';
+        long i = negative ? from + 1 : from;
+        if (i == to) return NOT_PARSED;
+
+        long limit = negative ? min : min + 1;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < to; i++) {
+            int digit = reader.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return NOT_PARSED;
+            if (result < multiplyLimit || result * 10 < limit + digit) {
+                for (i++; i < to; i++) {
+                    char c = reader.charAt(i);
+                    if (c < '0' || c > '9') return NOT_PARSED;
+                }
+                throw new ArithmeticException("Value out of range for "+ type +": "+ reader.substring(from, to));
+            }
+            result = result * 10 - digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    /*
+    *  Floating Point Parsing
+    */
+
+    /**
+     * Parses a json number into the bits of a double, or of a float if single is set.
+     * Returns NOT_PARSED if the input must be handed to the fallback parser.
+     */
+    private static long parseFloatingPoint(JsonReader reader, long from, long to, boolean single) {
+        long i = from;
+        boolean negative = i < to && reader.charAt(i) == '-';
+        if (negative) i++;
+
+        long w = 0;                         // Unsigned, 19 digits may exceed Long.MAX_VALUE
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        char c = 0;
+
+        for (; i < to; i++) {
+            c = reader.charAt(i);
+            if (c < '0' || c > '9') break;
+            anyDigits = true;
+            if (w != 0 || c != '0') {
+                if (significantDigits == 19) return NOT_PARSED;
+                w = w * 10 + (c - '0');
+                significantDigits++;
+            }
+        }
+
+        if (i < to && c == '.') {
+            for (i++; i < to; i++) {
+                c = reader.charAt(i);
+                if (c < '0' || c > '9') break;
+                anyDigits = true;
+                if (w != 0 || c != '0') {
+                    if (significantDigits == 19) return NOT_PARSED;
+                    w = w * 10 + (c - '0');
+                    significantDigits++;
+                }
+                exponent--;
+            }
+        }
+        if (!anyDigits) return NOT_PARSED;
+
+        if (i < to && (c == 'e' || c == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (reader.charAt(i) == '-' || reader.charAt(i) == '+')) negativeExponent = reader.charAt(i++) == '-';
+            if (i == to) return NOT_PARSED;
+
+            int explicit = 0;
+            for (; i < to; i++) {
+                c = reader.charAt(i);
+                if (c < '0' || c > '9') return NOT_PARSED;
+                if (explicit < 100000) explicit = explicit * 10 + (c - '0');
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i != to) return NOT_PARSED;
+
+        long sign = negative ? (single ? 1L << 31 : 1L << 63) : 0;
+        if (single) {
+            if (w == 0) return sign;
+            if (exponent >= -10 && exponent <= 10 && w >= 0 && w <= 1L << 24) {
+                float value = (exponent < 0) ? w / FLOAT_POWERS_OF_TEN[-exponent] : w * FLOAT_POWERS_OF_TEN[exponent];
+                return Float.floatToRawIntBits(value) | sign;
+            }
+            return computeFloat(exponent, w, true) | sign;
+        } else {
+            if (w == 0) return sign;
+            if (exponent >= -22 && exponent <= 22 && w >= 0 && w <= 1L << 53) {
+                double value = (exponent < 0) ? w / DOUBLE_POWERS_OF_TEN[-exponent] : w * DOUBLE_POWERS_OF_TEN[exponent];
+                return Double.doubleToRawLongBits(value) | sign;
+            }
+            return computeFloat(exponent, w, false) | sign;
+        }
+    }
+
+    /**
+     * Eisel-Lemire: computes the bits of the correctly rounded positive binary floating point value
+     *   closest to w * 10^q, for a non zero w.
+     */
+    private static long computeFloat(int q, long w, boolean single) {
+        int mantissaBits = single ? 23 : 52;
+        int minimumExponent = single ? -127 : -1023;
+        int infinitePower = single ? 0xFF : 0x7FF;
+
+        if (q < (single ? -65 : SMALLEST_POWER_OF_FIVE)) return 0;
+        if (q > (single ? 38 : LARGEST_POWER_OF_FIVE)) return (long) infinitePower << mantissaBits;
+
+        int leadingZeros = Long.numberOfLeadingZeros(w);
+        w <<= leadingZeros;
+
+//        Multiply by the high 64 bits of the power of five, only using the low 64 bits if the result
+//          is too close to a rounding boundary to tell which way it falls
+        int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+        long high = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index]);
+        long low = w * POWERS_OF_FIVE[index];
+        long precisionMask = -1L >>> (mantissaBits + 3);
+        if ((high & precisionMask) == precisionMask) {
+            long secondHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+            low += secondHigh;
+            if (Long.compareUnsigned(secondHigh, low) > 0) high++;
+        }
+
+        int upperBit = (int) (high >>> 63);
+        int shift = upperBit + 64 - mantissaBits - 3;
+        long mantissa = high >>> shift;
+        int power2 = ((((152170 + 65536) * q) >> 16) + 63) + upperBit - leadingZeros - minimumExponent;
+
+        if (power2 <= 0) {
+//            Subnormal result
+            if (-power2 + 1 >= 64) return 0;
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = (mantissa < (1L << mantissaBits)) ? 0 : 1;
+            return mantissa | ((long) power2 << mantissaBits);
+        }
+
+//        Round half to even when the product is exact and falls exactly between two values
+        if (Long.compareUnsigned(low, 1) <= 0 && q >= (single ? -17 : -4) && q <= (single ? 10 : 23) && (mantissa & 3) == 1) {
+            if ((mantissa << shift) == high) mantissa &= ~1L;
+        }
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << mantissaBits)) {
+            mantissa = 1L << mantissaBits;
+            power2++;
+        }
+        mantissa &= ~(1L << mantissaBits);
+
+        if (power2 >= infinitePower) return (long) infinitePower << mantissaBits;
+        return mantissa | ((long) power2 << mantissaBits);
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Builds the table of 128 bit powers of five from 5^-342 to 5^308.
+     * Negative powers are the reciprocal rounded up, positive powers are truncated.
+     */
+    private static long[] powersOfFive() {
+        BigInteger five = BigInteger.valueOf(5);
+        long[] powers = new long[2 * (LARGEST_POWER_OF_FIVE - SMALLEST_POWER_OF_FIVE + 1)];
+        for (int q = SMALLEST_POWER_OF_FIVE; q <= LARGEST_POWER_OF_FIVE; q++) {
+            BigInteger value;
+            if (q < 0) {
+                BigInteger power = five.pow(-q);
+                int z = power.bitLength();
+                int b = (q >= -27) ? z + 127 : 2 * z + 128;
+                value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+            } else {
+                value = five.pow(q);
+            }
+            int excess = value.bitLength() - 128;
+            value = (excess > 0) ? value.shiftRight(excess) : value.shiftLeft(-excess);
+
+            int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+            powers[index] = value.shiftRight(64).longValue();
+            powers[index + 1] = value.longValue();
+        }
+        return powers;
+    }
+
+    /*
+    *  Whitespace Trimming
+    */
+
+    private static long skipWhitespace(JsonReader reader, long from, long to) {
+        while (from < to && reader.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    private static long trimWhitespace(JsonReader reader, long from, long to) {
+        while (to > from && reader.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+}
@@ -0,0 +1,89 @@
+package com.darianopolis.dmj.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Memory outside of the Java heap holding the symbols of a document, and a copy of its source if that was a byte
+ *   array or a heap buffer, see JsonReader.moveOffHeap(). Also holds the symbols of a mapped index file, see
+ *   JsonSidecar.
+ *
+ * The memory is made of direct buffers, which the JDK otherwise only frees once they have been garbage collected,
+ *   and for a long lived document that may not be until a full collection. release() frees them at once through
+ *   the cleaner of sun.misc.Unsafe where it is available, and drops them for the garbage collector otherwise.
+ *   Nothing may read from the buffers once they have been released.
+ */
+final class JsonOffHeap {
+    private static final MethodHandle INVOKE_CLEANER;
+    static {
+        MethodHandle invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner = MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Released buffers are left to the garbage collector
+        }
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final ByteBuffer symbolMemory;
+    /** View of the symbols within symbolMemory */
+    final IntBuffer symbols;
+    /** Copy of the source, or null if the source was already outside of the heap */
+    final ByteBuffer source;
+
+    /**
+     * Allocates room for count symbols, to be filled in by the caller, and copies the source if one is given.
+     */
+    JsonOffHeap(int count, ByteBuffer source) {
+        if (count > Integer.MAX_VALUE >>> 2) throw new IllegalStateException("Index too large to move off heap");
+        symbolMemory = ByteBuffer.allocateDirect(count << 2).order(ByteOrder.nativeOrder());
+        this.symbols = symbolMemory.asIntBuffer();
+
+        if (source != null) {
+            this.source = ByteBuffer.allocateDirect(source.remaining());
+            this.source.put(source.duplicate()).flip();
+        } else {
+            this.source = null;
+        }
+    }
+
+    /**
+     * Wraps the symbols of a mapped index file, which are unmapped on release.
+     */
+    JsonOffHeap(ByteBuffer mapped, IntBuffer symbols) {
+        this.symbolMemory = mapped;
+        this.symbols = symbols;
+        this.source = null;
+    }
+
+    /**
+     * Returns the number of bytes held outside of the heap.
+     */
+    long size() {
+        return symbolMemory.capacity() + ((source != null) ? source.capacity() : 0);
+    }
+
+    void release() {
+        free(symbolMemory);
+        if (source != null) free(source);
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to free off heap memory", e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.darianopolis.dmj.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * A precompiled path into a json document, evaluated directly on the symbol index of a JsonReader.
+ *
+ * Paths are written as RFC 6901 json pointers, such as /users/0/tags, where ~1 and ~0 stand for / and ~
+ *   within a token. Two extensions are supported:
+ *   *           matches every value of an object or every element of an array
+ *   start:end   matches the elements of an array from start up to (but excluding) end. Either bound may be
+ *               left out, and negative bounds count back from the end of the array, as in -2: for the last two
+ * Numeric, slice and wildcard tokens still match keys of the same name when applied to an object, except for *.
+ *
+ * Evaluation walks the jumps of the symbol index, skipping over every value that is not matched without
+ *   creating a JsonPointer, list or mapping table for any of the intermediate steps. Where an object contains
+ *   a key more than once, only the last occurrence is matched, as with get(key). Matches are returned as values of
+ *   the same kind as the root they are found from, so that the matches within a shared value are JsonValues.
+ * A JsonPath is immutable, and so can be compiled once and evaluated against any number of documents from
+ *   any number of threads.
+ */
+public final class JsonPath {
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    private final String path;
+    /** Key matched within objects at each step, null for a wildcard */
+    private final String[] keys;
+    /** Range of elements matched within arrays at each step, negative bounds are relative to the end of the array */
+    private final int[] from;
+    private final int[] to;
+
+    private JsonPath(String path, String[] keys, int[] from, int[] to) {
+        this.path = path;
+        this.keys = keys;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Compiles a path, see JsonPath. The empty path refers to the value it is evaluated against.
+     */
+    public static JsonPath compile(String path) {
+        if (path.isEmpty()) return new JsonPath(path, new String[0], new int[0], new int[0]);
+        if (path.charAt(0) != '/') throw new IllegalArgumentException("Expected path to start with /: "+ path);
+
+        String[] tokens = path.substring(1).split("/", -1);
+        String[] keys = new String[tokens.length];
+        int[] from = new int[tokens.length];
+        int[] to = new int[tokens.length];
+        for (int step = 0; step < tokens.length; step++) {
+            String token = tokens[step];
+            if (token.equals("*")) {
+                to[step] = OPEN_END;
+                continue;
+            }
+
+            keys[step] = unescape(token, path);
+            int colon = token.indexOf(':');
+            if (colon < 0) {
+                if (isIndex(token)) {
+                    from[step] = Integer.parseInt(token);
+                    to[step] = from[step] + 1;
+                }
+            } else if (isBound(token.substring(0, colon)) && isBound(token.substring(colon + 1))) {
+                from[step] = (colon == 0) ? 0 : Integer.parseInt(token.substring(0, colon));
+                to[step] = (colon == token.length() - 1) ? OPEN_END : Integer.parseInt(token.substring(colon + 1));
+            }
+        }
+        return new JsonPath(path, keys, from, to);
+    }
+
+    private static String unescape(String token, String path) {
+        if (token.indexOf('~') < 0) return token;
+        StringBuilder key = new StringBuilder(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '~') {
+                char escaped = (i + 1 < token.length()) ? token.charAt(++i) : '\u0000';
+                if (escaped == '0') c = '~';
+                else if (escaped == '1') c = '/';
+                else throw new IllegalArgumentException("Expected ~0 or ~1 in path: "+ path);
+            }
+            key.append(c);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns true for an array index as defined by RFC 6901, digits without a leading zero.
+     */
+    private static boolean isIndex(String token) {
+        if (token.isEmpty() || token.length() > 9) return false;
+        if (token.length() > 1 && token.charAt(0) == '0') return false;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean isBound(String bound) {
+        if (bound.isEmpty()) return true;
+        return isIndex(bound.charAt(0) == '-' ? bound.substring(1) : bound);
+    }
+
+    /**
+     * Returns the first value matched within a json value, or JsonEmpty if there is none.
+     */
+    public Json find(Json root) {
+        if (!(root instanceof JsonPointer)) return JsonEmpty.EMPTY;
+        JsonPointer pointer = (JsonPointer) root;
+        int[] match = { -2 };
+        walk(pointer.reader, pointer.index, 0, symbol -> {
+            match[0] = symbol;
+            return false;
+        });
+        return (match[0] == -2) ? JsonEmpty.EMPTY : pointer.at(match[0]);
+    }
+
+    /**
+     * Performs an action for every value matched within a json value, in document order.
+     * A single JsonPointer is moved between the matches, and so must not be kept by the action, unless the root
+     *   is a shared value, whose matches are each a separate JsonValue.
+     */
+    public void forEach(Json root, Consumer<? super Json> action) {
+        if (!(root instanceof JsonPointer)) return;
+        JsonPointer pointer = (JsonPointer) root;
+        JsonPointer match = (pointer instanceof JsonValue) ? null : new JsonPointer(pointer.reader, -1);
+        walk(pointer.reader, pointer.index, 0, symbol -> {
+            action.accept((match != null) ? match.moveTo(symbol) : pointer.at(symbol));
+            return true;
+        });
+    }
+
+    /**
+     * Returns every value matched within a json value, in document order.
+     */
+    public Stream<Json> stream(Json root) {
+        if (!(root instanceof JsonPointer)) return Stream.empty();
+        JsonPointer pointer = (JsonPointer) root;
+        List<Json> matches = new ArrayList<>();
+        walk(pointer.reader, pointer.index, 0, symbol -> matches.add(pointer.at(symbol)));
+        return matches.stream();
+    }
+
+    /**
+     * Matches the remaining steps of the path against the value following a symbol.
+     * Returns false once the action has asked for the walk to stop.
+     */
+    private boolean walk(JsonReader reader, int value, int step, IntPredicate action) {
+        if (step == keys.length) return action.test(value);
+
+        int start = reader.next(value);
+        char c = reader.getChar(start);
+        if ((c != '{' && c != '[') || reader.isEmpty(start)) return true;
+
+        if (c == '{') {
+            String key = keys[step];
+            int match = -1;
+            for (int colon = start + 2; reader.getChar(colon) == ':'; ) {
+                if (key == null) {
+                    if (!walk(reader, colon, step + 1, action)) return false;
+                } else if (reader.contentEquals(reader.prev(colon), colon, key)) {
+                    match = colon;
+                }
+                int symbol = reader.skipBrackets(reader.next(colon));
+                if (reader.getChar(symbol) != ',') break;
+                colon = symbol + 1;
+            }
+            return match < 0 || walk(reader, match, step + 1, action);
+        }
+
+        int from = this.from[step], to = this.to[step];
+        if (from < 0 || to < 0) {
+            int length = count(reader, start);
+            if (from < 0) from = Math.max(0, from + length);
+            if (to < 0) to = Math.max(0, to + length);
+        }
+
+        int element = start;
+        for (int i = 0; i < to; i++) {
+            if (i >= from && !walk(reader, element, step + 1, action)) return false;
+            int symbol = reader.skipBrackets(reader.next(element));
+            if (reader.getChar(symbol) != ',') return true;
+            element = symbol;
+        }
+        return true;
+    }
+
+    /**
+     * Counts the elements of a non empty array.
+     */
+    private static int count(JsonReader reader, int start) {
+        int count = 1;
+        for (int symbol = reader.skipBrackets(start + 2); reader.getChar(symbol) == ','; count++) {
+            symbol = reader.skipBrackets(reader.next(symbol));
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof JsonPath && ((JsonPath) other).path.equals(path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+}
@@ -3,6 +3,7 @@ package com.darianopolis.dmj.json;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * References a specific location within a decoded json object.
@@ -22,12 +23,39 @@ public class JsonPointer implements Json {
     public final JsonReader reader;
     public int index;
 
-    private List<Integer> elements;
-    public Map<String, Integer> mappings;
+    private JsonElements elements;
+    JsonKeys mappings;
 
     public JsonPointer(JsonReader reader, int index) {
         this.reader = reader;
         this.index = index;
+        if (JsonMetrics.ENABLED) JsonMetrics.pointer();
+    }
+
+    /**
+     * Returns this pointer to the root of its reader, discarding any cached elements or mappings.
+     * Used when a reusable reader has been reset with a new document.
+     */
+    JsonPointer rewind() {
+        return moveTo(-1);
+    }
+
+    /**
+     * Moves this pointer to another value of the same reader, discarding any cached elements or mappings.
+     */
+    JsonPointer moveTo(int index) {
+        this.index = index;
+        first = true;
+        elements = null;
+        mappings = null;
+        return this;
+    }
+
+    /**
+     * Returns a pointer to another value of the same reader, of the same kind as this pointer.
+     */
+    JsonPointer at(int index) {
+        return new JsonPointer(reader, index);
     }
 
     /**
@@ -35,11 +63,20 @@ public class JsonPointer implements Json {
      * Note that JsonItem object returned is never stored, and thus subsequent calls will not satisfy identity checks
      * get(someKey) == get(someKey) -> false
      */
-    public Json get(String key) {
-        if (mappings == null && !findMappings()) return JsonEmpty.EMPTY;
-        Integer mapping = mappings.get(key);
-        if (mapping == null) return JsonEmpty.EMPTY;
-        return new JsonPointer(reader, mapping);
+    public Json get(CharSequence key) {
+        reader.checkOpen();
+//        Objects that have not been mapped by this pointer are first checked at the slot predicted from their siblings
+        boolean predicted = mappings == null;
+        if (predicted) {
+            int binding = reader.predictBinding(index, key);
+            if (binding >= 0) return at(binding);
+        }
+
+        if ((mappings == null || !reader.isComplete(index)) && !findMappings()) return JsonEmpty.EMPTY;
+        int slot = mappings.indexOf(key);
+        if (slot < 0) return JsonEmpty.EMPTY;
+        if (predicted) reader.learnShape(key, slot);
+        return at(mappings.binding(slot));
     }
 
     /**
@@ -48,15 +85,83 @@ public class JsonPointer implements Json {
      * get(someKey) == get(someKey) -> false
      */
     public Json get(int index) {
+        reader.checkOpen();
         if (index < 0) return JsonEmpty.EMPTY;
-        if (elements == null && !findElements()) return JsonEmpty.EMPTY;
-        if (index >= elements.size()) return JsonEmpty.EMPTY;
-        return new JsonPointer(reader, elements.get(index));
+        if ((elements == null || !reader.isComplete(this.index)) && !findElements()) return JsonEmpty.EMPTY;
+        int element = elements.get(index);
+        if (element < 0) return JsonEmpty.EMPTY;
+        return at(element);
+    }
+
+    /**
+     * Returns the number of elements of an array or keys of an object, or 0 for any other value.
+     */
+    @Override
+    public int size() {
+        int i = reader.next(index);
+        if (reader.isPending(i)) return 0;
+        char c = reader.getChar(i);
+        if (c == '[') {
+            if ((elements == null || !reader.isComplete(index)) && !findElements()) return 0;
+            return elements.size();
+        }
+        if (c == '{') {
+            if ((mappings == null || !reader.isComplete(index)) && !findMappings()) return 0;
+            return mappings.size();
+        }
+        return 0;
+    }
+
+    /**
+     * Splits the elements of an array or the values of an object on the element or key index, see JsonSpliterator.
+     */
+    @Override
+    public Spliterator<Json> spliterator() {
+        int i = reader.next(index);
+        if (reader.isPending(i)) return Spliterators.emptySpliterator();
+        char c = reader.getChar(i);
+        if (c == '[' && ((elements != null && reader.isComplete(index)) || findElements())) {
+            return new JsonSpliterator(this, elements, null, 0, elements.size());
+        }
+        if (c == '{' && ((mappings != null && reader.isComplete(index)) || findMappings())) {
+            return new JsonSpliterator(this, null, mappings, 0, mappings.size());
+        }
+        return Spliterators.emptySpliterator();
+    }
+
+    @Override
+    public Stream<Map.Entry<String, Json>> entries() {
+        int i = reader.next(index);
+        if (reader.isPending(i) || reader.getChar(i) != '{') return Stream.empty();
+        return stream().map(value -> Map.entry(value.getKey(), value));
+    }
+
+    /**
+     * Returns true if this value has been indexed entirely, and so can be read or navigated in full.
+     * Only values of a document that is still being read incrementally can be incomplete. Elements and mappings
+     *   of an incomplete array or object are limited to those that are complete, and are found again on every access.
+     */
+    public boolean isComplete() {
+        return reader.isComplete(index);
     }
 
     @Override
     public String asString() {
-        return JsonUtil.decode(reader.getQuotedString(index, reader.next(index)));
+        return reader.getDecodedString(index, reader.next(index));
+    }
+
+    /**
+     * Returns the string value as a view over the json source where possible, see JsonReader.getCharSequence.
+     * The view is invalidated when the reader is reset.
+     */
+    @Override
+    public CharSequence asCharSequence() {
+        return reader.getCharSequence(index, reader.next(index));
+    }
+
+    @Override
+    public boolean contentEquals(CharSequence other) {
+        return reader.contentEquals(index, reader.next(index), other);
     }
 
     @Override
@@ -66,27 +171,27 @@ public class JsonPointer implements Json {
 
     @Override
     public boolean asBoolean() {
-        return Boolean.parseBoolean(reader.getString(index, reader.next(index)).strip());
+        return reader.getBoolean(index, reader.next(index));
     }
 
     @Override
     public int asInteger() {
-        return Integer.parseInt(reader.getString(index, reader.next(index)).strip());
+        return reader.getInt(index, reader.next(index));
     }
 
     @Override
     public long asLong() {
-        return Long.parseLong(reader.getString(index, reader.next(index)).strip());
+        return reader.getLong(index, reader.next(index));
     }
 
     @Override
     public double asDouble() {
-        return Double.parseDouble(reader.getString(index, reader.next(index)).strip());
+        return reader.getDouble(index, reader.next(index));
     }
 
     @Override
     public float asFloat() {
-        return Float.parseFloat(reader.getString(index, reader.next(index)).strip());
+        return reader.getFloat(index, reader.next(index));
     }
 
     @Override
@@ -123,7 +228,7 @@ public class JsonPointer implements Json {
     public String getKey() {
 //        if (reader.getChar(index) != ':') return "";
         if (reader.getChar(index) != ':') throw new IllegalStateException("Value not in binding!");
-        return reader.getQuotedString(reader.prev(index), index);
+        return reader.getDecodedString(reader.prev(index), index);
     }
 
 //    int nextIndex;
@@ -136,15 +241,24 @@ public class JsonPointer implements Json {
     @Override
     public boolean hasNext() {
         if (first) {
+            if (index >= 0 && reader.getChar(index) == '{') {
+//                Iterator over an object whose first key had not been indexed yet
+                if (reader.isPending(reader.next(index))) return false;
+                index = reader.next(index);
+            }
+            if (!reader.isComplete(index)) return false;
             first = false;
             return true;
         }
 
         int symbol = reader.skipBrackets(reader.next(index));
+        if (reader.isPending(symbol)) return false;
         char next = reader.getChar(symbol);
         if (next == '}' || next == ']') return false;
         if (next != ',') throw new IllegalStateException("Expected , } or ] but got "+ next);
+        if (reader.isPending(symbol + 1)) return false;
         if (reader.getChar(symbol + 1) == ':') symbol++;
+        if (!reader.isComplete(symbol)) return false;
         index = symbol;
         return true;
     }
@@ -152,10 +266,12 @@ public class JsonPointer implements Json {
     @Override
     public Json iterator() {
         int first = reader.next(index);
+        if (reader.isPending(first)) throw new IllegalStateException("Value has not been indexed yet");
 
 //        char firstChar = reader.getChar(first);
 //        if (firstChar != '[' && firstChar != '{') return JsonEmpty.EMPTY;
         if (reader.isEmpty(first)) return JsonEmpty.EMPTY;
+        if (reader.isPending(reader.next(first))) return new JsonPointer(reader, first);
         if (reader.getChar(reader.next(first)) == ':') first = reader.next(first);
         return new JsonPointer(reader, first);
 
@@ -166,29 +282,24 @@ public class JsonPointer implements Json {
 
     private boolean findElements() {
         int i = reader.next(index);
+        if (reader.isPending(i)) return false;
         if (reader.getChar(i) != '[') return false;
         if (reader.isEmpty(i)) return false;
 
-        elements = new ArrayList<>();
-
-        JsonPointer iter = new JsonPointer(reader, i);
-        while (iter.hasNext()) elements.add(iter.index);
-
+        elements = reader.elements(i);
         return true;
     }
 
     public boolean findMappings() {
         int i = reader.next(index);
+        if (reader.isPending(i)) return false;
         if (reader.getChar(i) != '{') return false;
         if (reader.isEmpty(i)) return false;
         int j = i + 2;
+        if (reader.isPending(j)) return false;
         if (reader.getChar(j) != ':') return false;
 
-        mappings = new TreeMap<>();
-
-        JsonPointer iter = new JsonPointer(reader, j);
-        while (iter.hasNext()) mappings.put(iter.getKey(), iter.index);
-
+        mappings = reader.keys(i);
         return true;
     }
 }
@@ -0,0 +1,238 @@
+package com.darianopolis.dmj.json;
+
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * A precompiled set of fields, projected out of every object of a json array into one column per field.
+ *
+ * E.g. for the users array of a document
+ *   JsonProjection projection = JsonProjection.of("age", "latitude", "name");
+ *   int rows = projection.project(users, ages, latitudes, names);
+ * fills ages[i], latitudes[i] and names[i] from the age, latitude and name of the i'th user.
+ *
+ * The type of each column decides how its field is read. Supported columns are int[], long[], double[], float[],
+ *   boolean[], String[], CharSequence[] (see Json.asCharSequence()) and Json[], as well as IntBuffer, LongBuffer,
+ *   DoubleBuffer and FloatBuffer, which may be views of direct buffers to fill columns off heap.
+ *
+ * Each object is scanned once. Its keys are compared in place, by length first, against the fields, so no key
+ *   index or JsonPointer is created for any of the objects. Where an object contains a key more than once, the
+ *   last occurrence is projected, as it is found by Json.get(..), and so every object is scanned to its end.
+ * Fields that are missing or null are written as 0, false or null, and can be told apart from those values
+ *   through the absent bitmaps of projectBatch(..).
+ *
+ * A JsonProjection is immutable, and so can be compiled once and used from any number of threads.
+ */
+public final class JsonProjection {
+    /** Maximum number of fields, so that the fields found within an object fit in a long */
+    private static final int MAX_FIELDS = 64;
+
+    private static final int INT = 0, LONG = 1, DOUBLE = 2, FLOAT = 3, BOOLEAN = 4, STRING = 5, CHARS = 6, JSON = 7,
+        INT_BUFFER = 8, LONG_BUFFER = 9, DOUBLE_BUFFER = 10, FLOAT_BUFFER = 11;
+
+    private final String[] fields;
+    /** Length of each field in UTF-8 bytes, compared against keys of byte sources before their contents */
+    private final int[] byteLengths;
+    /** Bit i of equalFields[field] is set where fields[i] equals fields[field], so that both columns are written */
+    private final long[] equalFields;
+    /** Bits of the fields that contain a quote, which are compared against the whole of each key */
+    private final long quotedFields;
+
+    private JsonProjection(String[] fields) {
+        this.fields = fields;
+        byteLengths = new int[fields.length];
+        equalFields = new long[fields.length];
+        long quotedFields = 0;
+        for (int field = 0; field < fields.length; field++) {
+            if (fields[field].indexOf('"') >= 0 || fields[field].indexOf('\'') >= 0) quotedFields |= 1L << field;
+            byteLengths[field] = fields[field].getBytes(StandardCharsets.UTF_8).length;
+            for (int other = 0; other < fields.length; other++) {
+                if (fields[other].equals(fields[field])) equalFields[field] |= 1L << other;
+            }
+        }
+        this.quotedFields = quotedFields;
+    }
+
+    public static JsonProjection of(String... fields) {
+        if (fields.length == 0 || fields.length > MAX_FIELDS) {
+            throw new IllegalArgumentException("Expected between 1 and "+ MAX_FIELDS +" fields, got "+ fields.length);
+        }
+        return new JsonProjection(fields.clone());
+    }
+
+    /**
+     * Projects the objects of an array into columns, starting from the first object.
+     * Returns the number of rows written, which is limited by the size of the array and of the smallest column.
+     */
+    public int project(Json array, Object... columns) {
+        return projectBatch(array, 0, null, columns);
+    }
+
+    /**
+     * Projects the objects of an array into columns, starting from object number from, so that large arrays can
+     *   be projected in batches. Row i of every column is written from object from + i.
+     * If absent is given, bit i of absent[field] is set where the field of that row is missing or null, and
+     *   cleared otherwise. Entries of absent may be null for fields that need no bitmap.
+     * Elements of the array that are not objects are projected as if every field is missing.
+     * Returns the number of rows written, which is limited by the size of the array and of the smallest column.
+     */
+    public int projectBatch(Json array, int from, BitSet[] absent, Object... columns) {
+        if (columns.length != fields.length) {
+            throw new IllegalArgumentException("Expected "+ fields.length +" columns, got "+ columns.length);
+        }
+        if (absent != null && absent.length != fields.length) {
+            throw new IllegalArgumentException("Expected "+ fields.length +" absent bitmaps, got "+ absent.length);
+        }
+        if (from < 0) throw new IllegalArgumentException("Negative start row: "+ from);
+
+        int[] kinds = new int[columns.length];
+        int capacity = Integer.MAX_VALUE;
+        for (int field = 0; field < columns.length; field++) {
+            kinds[field] = kind(columns[field]);
+            capacity = Math.min(capacity, capacity(columns[field]));
+        }
+
+        if (!(array instanceof JsonPointer)) return 0;
+        JsonPointer pointer = (JsonPointer) array;
+        JsonReader reader = pointer.reader;
+        int start = reader.next(pointer.index);
+        if (reader.isPending(start) || reader.getChar(start) != '[' || reader.isEmpty(start)) return 0;
+        JsonElements elements = reader.elements(start);
+        int rows = Math.min(elements.size() - from, capacity);
+        if (rows <= 0) return 0;
+
+        int[] bindings = new int[fields.length];
+        int element = elements.get(from);
+        for (int row = 0; ; ) {
+//            Fields whose key has been seen in this object, each with the binding of its last occurrence
+            long seen = 0;
+            int value = reader.next(element);
+            if (reader.getChar(value) == '{' && !reader.isEmpty(value)) {
+                for (int colon = value + 2; reader.getChar(colon) == ':'; ) {
+                    long matched = match(reader, colon);
+                    seen |= matched;
+                    for (; matched != 0; matched &= matched - 1) bindings[Long.numberOfTrailingZeros(matched)] = colon;
+                    int symbol = reader.skipBrackets(reader.next(colon));
+                    if (reader.getChar(symbol) != ',') break;
+                    colon = symbol + 1;
+                }
+            }
+
+            for (int field = 0; field < fields.length; field++) {
+                boolean missing = true;
+                if ((seen & (1L << field)) != 0) {
+                    int colon = bindings[field], end = reader.next(colon);
+                    missing = reader.isNull(colon, end);
+                    if (!missing) write(kinds[field], columns[field], row, pointer, colon, end);
+                }
+                if (missing) empty(kinds[field], columns[field], row);
+                if (absent != null && absent[field] != null) absent[field].set(row, missing);
+            }
+
+            if (++row == rows) return rows;
+            element = reader.skipBrackets(reader.next(element));
+            if (reader.getChar(element + 1) == ':') element++;
+        }
+    }
+
+    /**
+     * Returns the bits of the fields that match the key of a binding, or 0 if there are none.
+     */
+    private long match(JsonReader reader, int colon) {
+        long close = reader.position(colon) - 1;
+        while (reader.charAt(close) <= ' ') close--;
+        char quote = reader.charAt(close);
+        if ((quote != '"' && quote != '\'') || reader.hasEscapes(colon)) {
+            int key = reader.prev(colon);
+            for (int field = 0; field < fields.length; field++) {
+                if (reader.contentEquals(key, colon, fields[field])) return equalFields[field];
+            }
+            return 0;
+        }
+
+//        The key has no escapes, so a field without quotes matches only if the quote opening the key lies right
+//        before it. This reads one char per field, rather than searching for the opening quote of every key
+        boolean chars = reader.source != null;
+        for (int field = 0; field < fields.length; field++) {
+            if ((quotedFields & (1L << field)) != 0) {
+                if (reader.contentEquals(reader.prev(colon), colon, fields[field])) return equalFields[field];
+                continue;
+            }
+            long open = close - 1 - (chars ? fields[field].length() : byteLengths[field]);
+            if (open >= 0 && reader.charAt(open) == quote && reader.regionEquals(open + 1, close, fields[field])) {
+                return equalFields[field];
+            }
+        }
+        return 0;
+    }
+
+    private static void write(int kind, Object column, int row, JsonPointer array, int start, int end) {
+        JsonReader reader = array.reader;
+        switch (kind) {
+            case INT: ((int[]) column)[row] = reader.getInt(start, end); break;
+            case LONG: ((long[]) column)[row] = reader.getLong(start, end); break;
+            case DOUBLE: ((double[]) column)[row] = reader.getDouble(start, end); break;
+            case FLOAT: ((float[]) column)[row] = reader.getFloat(start, end); break;
+            case BOOLEAN: ((boolean[]) column)[row] = reader.getBoolean(start, end); break;
+            case STRING: ((String[]) column)[row] = reader.getDecodedString(start, end); break;
+            case CHARS: ((CharSequence[]) column)[row] = reader.getCharSequence(start, end); break;
+            case JSON: ((Json[]) column)[row] = array.at(start); break;
+            case INT_BUFFER: ((IntBuffer) column).put(row, reader.getInt(start, end)); break;
+            case LONG_BUFFER: ((LongBuffer) column).put(row, reader.getLong(start, end)); break;
+            case DOUBLE_BUFFER: ((DoubleBuffer) column).put(row, reader.getDouble(start, end)); break;
+            case FLOAT_BUFFER: ((FloatBuffer) column).put(row, reader.getFloat(start, end)); break;
+        }
+    }
+
+    private static void empty(int kind, Object column, int row) {
+        switch (kind) {
+            case INT: ((int[]) column)[row] = 0; break;
+            case LONG: ((long[]) column)[row] = 0; break;
+            case DOUBLE: ((double[]) column)[row] = 0; break;
+            case FLOAT: ((float[]) column)[row] = 0; break;
+            case BOOLEAN: ((boolean[]) column)[row] = false; break;
+            case STRING: ((String[]) column)[row] = null; break;
+            case CHARS: ((CharSequence[]) column)[row] = null; break;
+            case JSON: ((Json[]) column)[row] = null; break;
+            case INT_BUFFER: ((IntBuffer) column).put(row, 0); break;
+            case LONG_BUFFER: ((LongBuffer) column).put(row, 0); break;
+            case DOUBLE_BUFFER: ((DoubleBuffer) column).put(row, 0); break;
+            case FLOAT_BUFFER: ((FloatBuffer) column).put(row, 0); break;
+        }
+    }
+
+    private static int kind(Object column) {
+        if (column instanceof int[]) return INT;
+        if (column instanceof long[]) return LONG;
+        if (column instanceof double[]) return DOUBLE;
+        if (column instanceof float[]) return FLOAT;
+        if (column instanceof boolean[]) return BOOLEAN;
+        if (column instanceof String[]) return STRING;
+        if (column instanceof Json[]) return JSON;
+        if (column instanceof CharSequence[]) return CHARS;
+        if (column instanceof IntBuffer) return INT_BUFFER;
+        if (column instanceof LongBuffer) return LONG_BUFFER;
+        if (column instanceof DoubleBuffer) return DOUBLE_BUFFER;
+        if (column instanceof FloatBuffer) return FLOAT_BUFFER;
+        throw new IllegalArgumentException("Unsupported column type: "+ (column == null ? null : column.getClass().getName()));
+    }
+
+    /**
+     * Returns the number of rows a column can hold. Buffers are written by absolute index, up to their limit.
+     */
+    private static int capacity(Object column) {
+        if (column instanceof Buffer) return ((Buffer) column).limit();
+        return Array.getLength(column);
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", fields);
+    }
+}
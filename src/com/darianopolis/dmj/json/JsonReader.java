@@ -1,6 +1,23 @@
 package com.darianopolis.dmj.json;
 
-import java.util.Stack;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * An extremely fast and memory efficient reader of JSON inputs.
@@ -49,118 +66,1604 @@ import java.util.Stack;
  *   number of element in that layer of the JSON. Note that the size or complexity of each individual
  *   element does not affect the runtime due to the use of symbol skips.
  *
+ * -- Byte Sources --
+ * A reader can also be created directly over UTF-8 encoded bytes, either as a byte[] or as a heap or
+ *   direct ByteBuffer. The bytes are indexed in place without first being decoded into a String, and
+ *   symbol positions then refer to byte offsets rather than char offsets. Since every symbol {}[]:,
+ *   and quote is ASCII, and no byte of a multi-byte UTF-8 sequence is ever below 0x80, the resulting
+ *   symbol index has exactly the same layout as for the decoded string.
+ * Only the slices that are actually requested through asString, asRaw, getKey and the number accessors
+ *   are ever decoded.
+ *
+ * -- Strings --
+ * While indexing, every backslash marks the symbol that follows it in a bit set, so that a string can be
+ *   known to be free of escapes from its end symbol alone. Such strings are copied out of the source in one
+ *   step by asString, and can be viewed in place with asCharSequence or compared with contentEquals without
+ *   creating a String at all. Only strings containing escapes are decoded by JsonUtil.unescape.
+ *
+ * -- Large Documents --
+ * JsonReader.open(Path) memory maps a file and indexes it in place, so that the document never needs to
+ *   be held on the heap. Files larger than 2GB are mapped as a series of 1GB segments, and their symbols are
+ *   stored relative to a base position that is recorded for every block of 4096 symbol entries. This allows
+ *   the index to address positions beyond the range of an int while still only requiring one int per symbol.
+ *   The number of entries in the index remains limited by the maximum size of a java array.
+ *
+ * -- Parallel Indexing --
+ * Byte sources of at least JsonReader.parallelThreshold bytes are indexed on the common ForkJoinPool.
+ *   The source is split into chunks which are each indexed speculatively, both as if they started outside of
+ *   a string and as if they started inside a double quoted string. The chunks are then stitched together in
+ *   order, choosing for each chunk the result matching the state its predecessor ended in, and resolving the
+ *   jumps of brackets that are left open at the end of one chunk and closed in a later one.
+ *   The resulting index is identical to the one produced by a sequential pass.
+ *
+ * -- Incremental Indexing --
+ * A document can also be indexed while it is being received, by starting it with begin() and supplying its
+ *   bytes through append(..), or by reading it from an InputStream or ReadableByteChannel. Each block of bytes
+ *   extends the index as soon as it arrives, with the quote and escape state carried over between blocks.
+ *   The jumps of brackets that are still open are held as PENDING, so that values can be checked for
+ *   completeness with JsonPointer.isComplete() and navigated before the rest of the document has arrived.
+ *
+ * -- Json Lines --
+ * readLines(..) and openLines(Path) index newline delimited json, one record per line, into a single symbol
+ *   index shared by all records. A separator symbol is stored at the newline ending each record, so that every
+ *   record is bounded by two symbols in the same way as an element of an array. The records are returned as a
+ *   JsonLines, which can hand them out individually or split them between threads. Large single buffer sources
+ *   are split at newlines and indexed in parallel.
+ *
+ * -- Reuse --
+ * The static read functions create a new reader for every document. For high volumes of small documents
+ *   a reader can instead be reused through reset(..), which keeps its symbols array, bracket stack and
+ *   char buffer between documents. Once a reader has seen a document of a given size, indexing another
+ *   document of that size allocates nothing. JsonReader.local() returns a reader owned by the calling thread.
+ * Resetting a reader invalidates every JsonPointer previously obtained from it.
+ *
+ * -- Index Cache --
+ * The element and key indexes that are built when an array or object is first accessed by number or key are
+ *   cached by the reader, keyed by the symbol of the container. Any JsonPointer to the same container then
+ *   reuses them, so that repeated navigation such as root.get("config").get("x") followed by
+ *   root.get("config").get("y") only indexes each container once. The cache is bounded to indexCacheSize
+ *   entries, evicting the least recently used entry of the set that a container maps to.
+ *
+ * -- Shape Prediction --
+ * Objects of the same array usually have the same keys in the same order. The slot at which a key was last found
+ *   is remembered by the reader, and a lookup of that key in a narrow object that has no key index yet first
+ *   compares the single key at that slot, before falling back to the key index. Homogeneous arrays are then navigated by key
+ *   without building a key index per object. See JsonShapes, and shapeHits() and shapeMisses() for how well the
+ *   predictions hold.
+ *
+ * -- Sharing --
+ * A finished document can be read from any number of threads at once after share() has been called on its reader.
+ *   share() returns an immutable JsonValue for the root, and every value reached from it through get(..) is
+ *   immutable in turn, so that values can be cached and handed between threads freely. Iteration state is kept
+ *   apart from the values: iterator() returns a new JsonPointer for each iteration, owned by the calling thread.
+ *   Element and key indexes are built on first access by whichever thread gets there first. They are immutable
+ *   once built, and are published to other threads through the index cache, which is itself created with a CAS,
+ *   so that concurrent threads at worst build the same index twice. A shared reader can no longer be reset.
+ *
+ * -- Compact Index --
+ * The symbols array holds a 32 bit int for every symbol and jump, which for a typical document is about half the
+ *   size of the source, or as large as it for dense numeric data. Compaction is opt in, by setting compactThreshold
+ *   or the dmj.json.compactThreshold system property. Once a document of at least compactThreshold chars or bytes
+ *   has been indexed to be kept, by the static read functions or trim(), its symbols are then re-encoded into about
+ *   half the memory by JsonCompactSymbols: 16 bit offsets from a 32 bit checkpoint per block of symbols, 16 bit
+ *   jump distances, and escapes to full values for the rare symbols that do not fit. Every symbol is still read in
+ *   constant time, so navigation is unchanged, but the public symbols array of a compacted document is null.
+ *   Smaller documents, and documents of readers that are reset for the next document, keep the array, which is
+ *   faster both to build and to read.
+ *
+ * -- Off Heap --
+ * A document that is kept for a long time can have its index moved out of the Java heap with moveOffHeap(), so that
+ *   it no longer adds to the size of the old generation or to the work of marking it. The symbols are copied into
+ *   a direct buffer, as is the source if it is a byte array or a heap buffer, and the arrays are dropped. The
+ *   escape bits and block bases, at most a 32nd of the size of the symbols, and String sources stay on the heap.
+ *   Navigation is unchanged, reading each symbol from the buffer instead. The memory is freed by close(), after
+ *   which every pointer into the document throws an IllegalStateException, or by the next reset of the reader,
+ *   after which no pointer into the document may be used. Direct memory is limited by -XX:MaxDirectMemorySize.
+ *
+ * -- Index Files --
+ * The index of a document read from bytes can be persisted with writeIndex(..) to a sidecar file, which
+ *   open(path, sidecar) maps back in place of indexing the document again, so that a large file that is opened on
+ *   every start of a process is only indexed once. See JsonSidecar for the format. A sidecar records the length
+ *   and a CRC32C of its source and of itself, and is only used if they all match. Otherwise the document is indexed
+ *   and its sidecar rewritten. The checksums read the source and sidecar once, an order of magnitude faster than
+ *   indexing. With trustIndexFiles set, only the length is checked, and opening a document costs little more than
+ *   mapping both files. A mapped index is read in the same way as one moved off heap, and is unmapped by close().
+ *
+ * -- Instrumentation --
+ * Every indexed document is recorded as a JsonIndexEvent and every element or key index that is built as a
+ *   JsonContainerEvent, both of which cost nothing unless a JFR recording has enabled them. Process wide counters
+ *   of documents, index builds, pointers, strings and numbers are kept by JsonMetrics when the dmj.json.metrics
+ *   system property is set, and are published over JMX.
+ *
+ * -- Strict Mode --
+ * Indexing is lenient by default: only the pairing of brackets is checked, and any other invalid json is indexed
+ *   as best it can be. With setStrict(true), or the dmj.json.strict system property for every new reader, the
+ *   document is validated in the same pass that indexes it. The order of tokens, the pairing of brackets, the
+ *   grammar of numbers and literals, escapes and control characters in strings are all checked against the
+ *   tables of JsonGrammar, keeping one bit per depth for whether each open structure is an object. The first
+ *   error throws an IllegalStateException with its position. Strict byte sources are indexed token by token whatever
+ *   the vectorized setting, skipping the plain content of strings and runs of digits 8 bytes at a time as
+ *   JsonValidator does: this costs less than classifying 64 byte blocks into masks and then visiting each token of
+ *   them, and it keeps the error the first one in the source. Strict documents are not split for parallel
+ *   indexing, other than the records of json lines. The index that is built is the same in either mode.
+ *
  * -- Parse Safety --
- * The JsonReader performs a full parse check on the json string during the find symbol phase and will through
- * an exception at any invalid json structure that is found.
+ * The JsonReader checks the structure of the json string during the find symbol phase and will throw an
+ * exception at any unmatched bracket, or at any invalid json in strict mode.
  * This enables the system to make subsequent assumptions about the expected structure of the symbol index.
  * Further increasing the speed of querying the json.
  */
 @SuppressWarnings("Duplicates")
-public class JsonReader {
+public class JsonReader implements AutoCloseable {
     private static final int INITIAL_SYMBOL_SIZE = 100;
+    private static final int INITIAL_DEPTH = 32;
+    private static final int MAX_SYMBOL_SIZE = Integer.MAX_VALUE - 8;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+    /** Jump of an open bracket whose close bracket has not been indexed yet */
+    private static final int PENDING = Integer.MIN_VALUE;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int BLOCK_SHIFT = 12;
+
+    private static final ThreadLocal<JsonReader> LOCAL = ThreadLocal.withInitial(JsonReader::new);
+
+    /*
+     * Only one kind of source is set at a time.
+     * String sources keep both the String and a copy of its chars, the char buffer may be larger
+     *   than the source if the reader has been reused. Byte sources are either a byte[], a region of
+     *   a ByteBuffer beginning at start, or a series of mapped segments.
+     */
+    String source;
+    public char[] chars;
+    byte[] array;
+    public ByteBuffer bytes;
+    int start;
+    /** Consecutive mapped regions of a source too large for a single buffer, each SEGMENT_SIZE long */
+    ByteBuffer[] segments;
+    /** Length of the source, in chars or bytes */
+    long length;
+
+    /** The symbol index, see above, or null once it has been compacted or moved off heap */
+    public int[] symbols;
+    /** Holds the symbols in place of the symbols array once compacted by trimSymbols() */
+    private JsonCompactSymbols compact;
+    /** Holds the symbols in place of the symbols array once moved off heap by moveOffHeap() */
+    private JsonOffHeap offHeap;
+    /** Base position of each block of symbols, only used when positions can exceed the range of an int */
+    long[] bases;
+    int baseCount;
+    /**
+     * Bit set over symbol indexes, marking each symbol that is preceded by a backslash since the previous symbol.
+     * A string bounded by two symbols can only contain escapes if the bit of its end symbol is set.
+     * Left null for documents that contain no backslashes.
+     */
+    long[] escapes;
+    int escapeWords;
+
+    private final JsonPointer root = new JsonPointer(this, -1);
+    /** Created on the first navigation into a container by key or element number, published through INDEX_CACHE */
+    private JsonIndexCache indexCache;
+    /** Set by share(), after which the document can no longer be replaced */
+    private boolean shared;
+    /** Set by close() once an off heap index has been released, until the next document */
+    private boolean closed;
+    /** Set while the symbols are those of a set of json lines rather than of a single document */
+    private boolean lines;
+    /** Created on the first lookup of a key, published through SHAPES, and kept between documents */
+    private JsonShapes shapes;
+
+    private static final VarHandle INDEX_CACHE;
+    private static final VarHandle SHAPES;
+    static {
+        try {
+            INDEX_CACHE = MethodHandles.lookup().findVarHandle(JsonReader.class, "indexCache", JsonIndexCache.class);
+            SHAPES = MethodHandles.lookup().findVarHandle(JsonReader.class, "shapes", JsonShapes.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Whether byte sources are indexed 64 bytes at a time by indexVector() rather than one byte at a time.
+     * Both produce identical indexes. Defaults to true unless the dmj.json.scalar system property is set.
+     * Strict indexing is never done by indexVector(), see the Strict Mode section.
+     */
+    public static boolean vectorized = !Boolean.getBoolean("dmj.json.scalar");
+
+    /**
+     * Minimum size in bytes of a single buffer byte source for it to be indexed in parallel.
+     * Can be configured with the dmj.json.parallelThreshold system property.
+     */
+    public static long parallelThreshold = Long.getLong("dmj.json.parallelThreshold", 32L << 20);
+    private static final int PARALLEL_MIN_CHUNK = 1 << 20;
+
+    /**
+     * Number of container element and key indexes cached by each reader, see JsonIndexCache. 0 disables caching.
+     * Can be configured with the dmj.json.indexCacheSize system property.
+     */
+    public static int indexCacheSize = Integer.getInteger("dmj.json.indexCacheSize", 1024);
+
+    /**
+     * Whether key lookups first check the slot predicted from sibling objects, see JsonShapes.
+     * Defaults to true unless the dmj.json.noShapes system property is set.
+     */
+    public static boolean predictShapes = !Boolean.getBoolean("dmj.json.noShapes");
+
+    /**
+     * Whether new readers check that their documents are valid json while indexing them, see setStrict(..).
+     * Defaults to false unless the dmj.json.strict system property is set.
+     */
+    public static boolean strict = Boolean.getBoolean("dmj.json.strict");
+
+    /**
+     * Minimum length in chars or bytes of a document for its symbols to be compacted when it is trimmed, see the
+     *   Compact Index section of JsonReader. Can be configured with the dmj.json.compactThreshold system property,
+     *   and defaults to Long.MAX_VALUE, which leaves every document uncompacted.
+     */
+    public static long compactThreshold = Long.getLong("dmj.json.compactThreshold", Long.MAX_VALUE);
+
+    /**
+     * Whether index files are used without verifying the checksums of the index and its source, see the Index Files
+     *   section of JsonReader. Defaults to false unless the dmj.json.trustIndexFiles system property is set.
+     */
+    public static boolean trustIndexFiles = Boolean.getBoolean("dmj.json.trustIndexFiles");
+
+    /*
+     * Indexing state. After indexing, symbolIndex holds the number of entries in use in the symbols array.
+     * skips is a stack of the jump entries of currently open brackets, with depth entries in use.
+     */
+    int symbolIndex;
+    /** Number of times the symbols array has grown while indexing the current document */
+    int resizes;
+    private int[] skips;
+    private int depth;
+    /** When indexing a single chunk, the symbol indexes following each close bracket that had no open bracket */
+    private int[] unmatched;
+    private int unmatchedCount;
+    private byte quotes;
+    private boolean escape;
+    private boolean emptyStructure;
+    /*
+     * Strict indexing state, see JsonGrammar. grammar is the structural state, atom the state of the number or
+     *   literal in progress, and hex the number of hex digits of a unicode escape that are still to be checked.
+     * kinds holds a bit per open bracket of skips, set for an object.
+     */
+    private boolean strictMode = strict;
+    private int grammar;
+    private int atom;
+    private int hex;
+    private long[] kinds;
+    /** Set between begin() and finish(), while the source is still being appended to */
+    boolean incremental;
+    /** When indexing lines, the symbol index preceding each record, -1 for a record at the start of the source */
+    private int[] records;
+    private int recordCount;
+    /** Spans an incremental read from begin() to finish(), null unless a recording has the event enabled */
+    private JsonIndexEvent incrementalEvent;
+    /** Receive buffer of incremental reads, kept between documents */
+    private byte[] buffer;
+    private ByteBuffer bufferView;
+
+    public JsonReader() {}
+
+    /**
+     * Returns a reusable reader owned by the calling thread.
+     * Any JsonPointer obtained from a previous reset(..) of this reader on the same thread is invalidated
+     *   by the next reset, so the returned pointers should not be kept beyond the processing of a document.
+     */
+    public static JsonReader local() {
+        return LOCAL.get();
+    }
+
+    public static JsonPointer read(String source) {
+        JsonReader reader = new JsonReader();
+        JsonPointer root = reader.reset(source);
+        reader.trimSymbols();
+        return root;
+    }
+
+    /**
+     * Reads UTF-8 encoded json directly from a byte array, without copying or decoding it.
+     */
+    public static JsonPointer read(byte[] source) {
+        JsonReader reader = new JsonReader();
+        JsonPointer root = reader.reset(source);
+        reader.trimSymbols();
+        return root;
+    }
+
+    /**
+     * Reads UTF-8 encoded json from the remaining bytes of a heap or direct buffer.
+     * The buffer is indexed in place, and so must not be modified while the returned
+     *   JsonPointer (or any pointer derived from it) is still in use.
+     * The position and limit of the supplied buffer are not changed.
+     */
+    public static JsonPointer read(ByteBuffer source) {
+        JsonReader reader = new JsonReader();
+        JsonPointer root = reader.reset(source);
+        reader.trimSymbols();
+        return root;
+    }
+
+    /**
+     * Memory maps a UTF-8 encoded json file and indexes it in place.
+     * The mapping remains valid after this returns and is released once the reader is garbage collected.
+     * The file must not be modified while the returned JsonPointer is still in use.
+     */
+    public static JsonPointer open(Path path) throws IOException {
+        JsonReader reader = map(path);
+        reader.findSymbols();
+        reader.trimSymbols();
+        return reader.root.rewind();
+    }
+
+    /**
+     * Memory maps a UTF-8 encoded json file along with its index file, which is written first if it does not exist
+     *   or no longer matches the file. See the Index Files section of JsonReader.
+     * The index file is only a cache, and a failure to write it is ignored.
+     */
+    public static JsonPointer open(Path path, Path sidecar) throws IOException {
+        JsonReader reader = map(path);
+        JsonIndexEvent event = JsonIndexEvent.start();
+        JsonSidecar index = JsonSidecar.read(reader, sidecar, !trustIndexFiles);
+        if (index != null) {
+            reader.offHeap = new JsonOffHeap(index.mapped, index.symbols);
+            reader.symbols = null;
+            reader.symbolIndex = index.symbolIndex;
+            reader.escapes = index.escapes;
+            reader.escapeWords = (index.escapes != null) ? index.escapes.length : 0;
+            if (index.bases != null) {
+                reader.bases = index.bases;
+                reader.baseCount = index.bases.length;
+            }
+            reader.indexed(event, "sidecar");
+            return reader.root.rewind();
+        }
+
+        reader.findSymbols();
+        reader.trimSymbols();
+        try {
+            reader.writeIndex(sidecar);
+        } catch (IOException e) {
+            // The document is still usable without its index file
+        }
+        return reader.root.rewind();
+    }
+
+    /**
+     * Indexes newline delimited json (NDJSON / JSON Lines) from a byte array as a sequence of records,
+     *   sharing a single symbol index between all of them. Blank lines are skipped.
+     */
+    public static JsonLines readLines(byte[] source) {
+        JsonReader reader = new JsonReader();
+        reader.array = source;
+        reader.length = source.length;
+        return reader.findLines();
+    }
+
+    /**
+     * Indexes newline delimited json from the remaining bytes of a heap or direct buffer, see readLines(byte[]).
+     * The position and limit of the supplied buffer are not changed.
+     */
+    public static JsonLines readLines(ByteBuffer source) {
+        JsonReader reader = new JsonReader();
+        reader.bytes = source;
+        reader.start = source.position();
+        reader.length = source.remaining();
+        return reader.findLines();
+    }
+
+    /**
+     * Memory maps a newline delimited json file and indexes it in place, see readLines(byte[]).
+     */
+    public static JsonLines openLines(Path path) throws IOException {
+        return map(path).findLines();
+    }
+
+    /**
+     * Creates a reader over a memory mapped file, split into segments if it is too large for a single buffer.
+     */
+    private static JsonReader map(Path path) throws IOException {
+        JsonReader reader = new JsonReader();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            reader.length = size;
+            if (size <= Integer.MAX_VALUE) {
+                reader.bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+                for (int k = 0; k < segments.length; k++) {
+                    long offset = (long) k << SEGMENT_SHIFT;
+                    segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(SEGMENT_SIZE, size - offset));
+                }
+                reader.segments = segments;
+                reader.bases = new long[16];
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Reads and indexes UTF-8 encoded json from a stream, indexing each block of bytes as soon as it is received.
+     * The stream is read until its end but is not closed.
+     */
+    public static JsonPointer read(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader();
+        reader.begin();
+        while (reader.append(in) >= 0);
+        JsonPointer root = reader.finish();
+        reader.trimSymbols();
+        return root;
+    }
+
+    /**
+     * Reads and indexes UTF-8 encoded json from a channel, indexing each block of bytes as soon as it is received.
+     * The channel is read until its end but is not closed.
+     */
+    public static JsonPointer read(ReadableByteChannel channel) throws IOException {
+        JsonReader reader = new JsonReader();
+        reader.begin();
+        while (reader.append(channel) >= 0);
+        JsonPointer root = reader.finish();
+        reader.trimSymbols();
+        return root;
+    }
+
+    /**
+     * Starts indexing a new UTF-8 encoded document incrementally, reusing the buffers of this reader.
+     * The document is supplied through append(..) as it arrives and extends the index on every call.
+     * The returned root pointer can be navigated before finish(), see JsonPointer.isComplete().
+     */
+    public JsonPointer begin() {
+        clear();
+        incrementalEvent = JsonIndexEvent.start();
+        if (buffer == null) buffer = new byte[INITIAL_BUFFER_SIZE];
+        array = buffer;
+        length = 0;
+        startIndexing();
+        padSymbols();
+        incremental = true;
+        return root.rewind();
+    }
+
+    /**
+     * Appends bytes to a document started with begin() and indexes them.
+     */
+    public void append(byte[] source, int offset, int count) {
+        reserve(count);
+        System.arraycopy(source, offset, array, (int) length, count);
+        indexAppended(count);
+    }
+
+    /**
+     * Appends the remaining bytes of a buffer to a document started with begin() and indexes them.
+     * The position of the buffer is moved to its limit.
+     */
+    public void append(ByteBuffer source) {
+        int count = source.remaining();
+        reserve(count);
+        source.get(array, (int) length, count);
+        indexAppended(count);
+    }
+
+    /**
+     * Reads the next block of bytes available from a stream into a document started with begin() and indexes them.
+     * Returns the number of bytes read, or -1 at the end of the stream.
+     */
+    public int append(InputStream in) throws IOException {
+        reserve(1);
+        int count = in.read(array, (int) length, array.length - (int) length);
+        if (count > 0) indexAppended(count);
+        return count;
+    }
+
+    /**
+     * Reads the next block of bytes available from a channel into a document started with begin() and indexes them.
+     * Returns the number of bytes read, or -1 at the end of the stream.
+     */
+    public int append(ReadableByteChannel channel) throws IOException {
+        reserve(1);
+        if (bufferView == null || bufferView.array() != array) bufferView = ByteBuffer.wrap(array);
+        bufferView.limit(array.length).position((int) length);
+        int count = channel.read(bufferView);
+        if (count > 0) indexAppended(count);
+        return count;
+    }
+
+    /**
+     * Completes a document started with begin(), checking that every structure has been closed.
+     */
+    public JsonPointer finish() {
+        if (!incremental) throw new IllegalStateException("No incremental read in progress");
+        incremental = false;
+        finishIndexing();
+        indexed(incrementalEvent, "incremental");
+        incrementalEvent = null;
+        return root;
+    }
+
+    /**
+     * Marks the document of this reader as shared between threads, and returns an immutable root value for it.
+     * See the Sharing section of JsonReader. The reader can no longer be reset or reused afterwards, and so
+     *   readers from local() should not be shared.
+     */
+    public Json share() {
+        if (incremental) throw new IllegalStateException("Document must be finished before it can be shared");
+        shared = true;
+        return new JsonValue(this, -1);
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Sets whether this reader checks that its documents are valid json while indexing them, see the Strict Mode
+     *   section of JsonReader. Applies from the next document.
+     */
+    public void setStrict(boolean strict) {
+        if (incremental) throw new IllegalStateException("Strictness cannot be changed during an incremental read");
+        this.strictMode = strict;
+    }
+
+    public boolean isStrict() {
+        return strictMode;
+    }
+
+    /**
+     * Moves the symbols of the current document, and its source if it is a byte array or a heap buffer, out of the
+     *   Java heap. See the Off Heap section of JsonReader. The memory is held until close() or the next reset.
+     * The document must be finished and not yet shared, and may be a set of json lines.
+     */
+    public void moveOffHeap() {
+        if (incremental) throw new IllegalStateException("Document must be finished before it is moved off heap");
+        if (shared) throw new IllegalStateException("Document must be moved off heap before it is shared");
+        if (offHeap != null || (symbols == null && compact == null)) return;
+
+        ByteBuffer source = null;
+        if (array != null) source = ByteBuffer.wrap(array, 0, (int) length);
+        else if (bytes != null && segments == null && !bytes.isDirect()) source = bytes.duplicate().position(start).limit(start + (int) length);
+        int count = (symbols != null) ? storedSymbols() : compact.size();
+        offHeap = new JsonOffHeap(count, source);
+        if (symbols != null) offHeap.symbols.put(symbols, 0, count);
+        else for (int i = 0; i < count; i++) offHeap.symbols.put(i, compact.get(i));
+        if (offHeap.source != null) {
+            array = null;
+            bytes = offHeap.source;
+            start = 0;
+            buffer = null;
+            bufferView = null;
+        }
+        symbols = null;
+        compact = null;
+        skips = null;
+        if (bases != null) bases = Arrays.copyOf(bases, baseCount);
+        if (escapes != null && escapes.length != escapeWords) escapes = Arrays.copyOf(escapes, escapeWords);
+    }
+
+    /**
+     * Releases the spare capacity of the index of the current document, which is to be kept rather than replaced
+     *   by the next reset, and compacts it if it is at least compactThreshold long. See the Compact Index section
+     *   of JsonReader.
+     *   The static read functions trim their documents already.
+     */
+    public void trim() {
+        if (incremental) throw new IllegalStateException("Document must be finished before it is trimmed");
+        if (offHeap == null) trimSymbols();
+    }
+
+    /**
+     * Writes the index of the current document to a sidecar file, to be mapped back in by open(path, sidecar).
+     * The document must be finished, read from bytes, and not a set of json lines.
+     */
+    public void writeIndex(Path sidecar) throws IOException {
+        if (incremental) throw new IllegalStateException("Document must be finished before its index is written");
+        if (source != null) throw new IllegalStateException("Only the index of a byte source can be written");
+        if (lines) throw new IllegalStateException("The index of json lines cannot be written");
+        JsonSidecar.write(this, sidecar);
+    }
+
+    public boolean isOffHeap() {
+        return offHeap != null;
+    }
+
+    /**
+     * Frees the memory of a document that has been moved off heap, after which it can no longer be navigated:
+     *   the element and key indexes cached for it are dropped, and every pointer into it throws an
+     *   IllegalStateException, including those that hold an index of their own.
+     * Must not be called while any other thread may still navigate the document. Does nothing otherwise.
+     */
+    @Override
+    public void close() {
+        if (offHeap == null) return;
+        if (offHeap.source != null) bytes = null;
+        offHeap.release();
+        offHeap = null;
+        symbolIndex = 0;
+        if (indexCache != null) indexCache.clear();
+        closed = true;
+    }
+
+    /**
+     * Throws if the document has been closed, for navigation that would not otherwise read the index.
+     */
+    void checkOpen() {
+        if (closed) throw new IllegalStateException("Document has been closed");
+    }
+
+    /**
+     * Ensures that the receive buffer has space for at least count more bytes.
+     */
+    private void reserve(int count) {
+        if (!incremental) throw new IllegalStateException("No incremental read in progress");
+        if (array.length - length >= count) return;
+        if (length + count > MAX_BUFFER_SIZE) throw new IllegalStateException("Document too large for an incremental read");
+        buffer = array = Arrays.copyOf(array, (int) Math.min(Math.max(length + count, array.length * 2L), MAX_BUFFER_SIZE));
+    }
+
+    /**
+     * Indexes the count bytes that were just written to the end of the receive buffer.
+     * The index is padded after every block, so that navigation never reads beyond the symbols indexed so far.
+     */
+    private void indexAppended(int count) {
+        int from = (int) length;
+        length += count;
+        index(null, from, (int) length, 0);
+        padSymbols();
+    }
+
+    /**
+     * Indexes a new json string with this reader, reusing its buffers.
+     */
+    public JsonPointer reset(String source) {
+        clear();
+        int length = source.length();
+        if (chars == null || chars.length < length) chars = new char[length];
+        source.getChars(0, length, chars, 0);
+        this.source = source;
+        this.length = length;
+        findSymbols();
+        return root.rewind();
+    }
+
+    /**
+     * Indexes new UTF-8 encoded json from a byte array with this reader, reusing its buffers.
+     */
+    public JsonPointer reset(byte[] source) {
+        return reset(source, source.length);
+    }
+
+    /**
+     * Indexes the first length bytes of a byte array, such as a reused receive buffer.
+     */
+    public JsonPointer reset(byte[] source, int length) {
+        clear();
+        this.array = source;
+        this.length = length;
+        findSymbols();
+        return root.rewind();
+    }
+
+    /**
+     * Indexes new UTF-8 encoded json from the remaining bytes of a buffer with this reader, reusing its buffers.
+     */
+    public JsonPointer reset(ByteBuffer source) {
+        clear();
+        this.bytes = source;
+        this.start = source.position();
+        this.length = source.remaining();
+        findSymbols();
+        return root.rewind();
+    }
+
+    private void clear() {
+        if (shared) throw new IllegalStateException("Reader is shared and cannot be reset");
+        close();
+        closed = false;
+        compact = null;
+        lines = false;
+        if (indexCache != null) indexCache.clear();
+        incremental = false;
+        source = null;
+        array = null;
+        bytes = null;
+        start = 0;
+        segments = null;
+        bases = null;
+    }
+
+    /**
+     * Cuts the symbols array down to its minimum size, leaving the zero pad at the end
+     *   for jump checking overflow protection.
+     * Note that since symbol exploration is always bounded by jumps, padded 0s will never be treated
+     *   as symbols.
+     */
+    private void trimSymbols() {
+        if (symbols == null) return;
+        if (length >= compactThreshold) {
+            compact = JsonCompactSymbols.encode(symbols, storedSymbols());
+            symbols = null;
+            skips = null;
+        } else if (symbols.length != symbolIndex + 1) {
+            symbols = Arrays.copyOf(symbols, symbolIndex + 1);
+        }
+        if (bases != null) bases = Arrays.copyOf(bases, baseCount);
+        if (escapes != null && escapes.length != escapeWords) escapes = Arrays.copyOf(escapes, escapeWords);
+    }
+
+    /**
+     * Returns the number of symbols held, from wherever they are held, including the entry after the zero pad.
+     */
+    int storedSymbolCount() {
+        if (symbols != null) return storedSymbols();
+        if (compact != null) return compact.size();
+        if (offHeap != null) return offHeap.symbols.capacity();
+        throw new IllegalStateException("Document has been closed");
+    }
+
+    /**
+     * Returns the number of entries of the symbols array to keep when it is copied into another encoding.
+     * This includes whatever follows the zero pad, as skipBrackets() looks one entry beyond a value at the end.
+     */
+    private int storedSymbols() {
+        return Math.min(symbols.length, symbolIndex + 2);
+    }
+
+    /**
+     * Adds a symbol to the symbols array, ensures there is enough space in the
+     *  array for the new symbol AND a jump index if required.
+     */
+    private void addSymbol(int symbolIndex, int i) {
+        if (symbolIndex + 1 >= symbols.length) growSymbols();
+        symbols[symbolIndex] = i;
+    }
+
+    /**
+     * Adds a symbol from a byte source, whose position may exceed the range of an int.
+     */
+    private void addPosition(int symbolIndex, long position) {
+        if (symbolIndex + 1 >= symbols.length) growSymbols();
+        setPosition(symbolIndex, position);
+    }
+
+    /**
+     * Stores a source position in the symbols array.
+     * If block bases are in use, the position is stored relative to the base of its block, where the
+     *   base of a block is the first position stored within it.
+     */
+    private void setPosition(int symbolIndex, long position) {
+        if (bases == null) {
+            symbols[symbolIndex] = (int) position;
+            return;
+        }
+
+        int block = symbolIndex >>> BLOCK_SHIFT;
+        if (block >= bases.length) bases = Arrays.copyOf(bases, Math.max(block + 1, bases.length * 2));
+        while (baseCount <= block) bases[baseCount++] = position;
+
+        long relative = position - bases[block];
+        if (relative > Integer.MAX_VALUE) throw new IllegalStateException("Symbol block too large at "+ position);
+        symbols[symbolIndex] = (int) relative;
+    }
+
+    /**
+     * Marks the string values ending at a symbol index as possibly containing escapes.
+     */
+    private void markEscape(int symbolIndex) {
+        int word = symbolIndex >>> 6;
+        if (escapes == null) escapes = new long[Math.max(word + 1, symbols.length >>> 6)];
+        else if (word >= escapes.length) escapes = Arrays.copyOf(escapes, Math.max(word + 1, escapes.length * 2));
+        escapes[word] |= 1L << symbolIndex;
+        if (word >= escapeWords) escapeWords = word + 1;
+    }
+
+    private void growSymbols() {
+        if (symbols.length >= MAX_SYMBOL_SIZE) throw new IllegalStateException("Too many symbols, index is full");
+        resizes++;
+        int[] newArray = new int[(int) Math.min((symbols.length + 1L) * 2, MAX_SYMBOL_SIZE)];
+        System.arraycopy(symbols, 0, newArray, 0, symbols.length);
+        symbols = newArray;
+    }
+
+    /**
+     * Prepares the indexing state for a new document, keeping any existing buffers.
+     */
+    private void startIndexing() {
+        if (symbols == null) symbols = new int[INITIAL_SYMBOL_SIZE];
+        if (skips == null) skips = new int[INITIAL_DEPTH];
+        symbolIndex = 0;
+        resizes = 0;
+        depth = 0;
+        baseCount = 0;
+        if (escapeWords > 0) Arrays.fill(escapes, 0, escapeWords, 0);
+        escapeWords = 0;
+        quotes = 0;
+        escape = false;
+        emptyStructure = false;
+        grammar = JsonGrammar.VALUE;
+        atom = JsonGrammar.NONE;
+        hex = 0;
+        if (strictMode && kinds == null) kinds = new long[1];
+    }
+
+    /**
+     * Checks that every structure was closed and writes the zero pad following the last symbol.
+     */
+    private void finishIndexing() {
+        if (strictMode) endStrict(length, false);
+        if (depth != 0) throw new IllegalStateException("Expected } or ], found EOF");
+        padSymbols();
+    }
+
+    private void padSymbols() {
+        if (symbolIndex >= symbols.length) growSymbols();
+        symbols[symbolIndex] = 0;
+    }
+
+    /**
+     * Extracts the symbolic structure of the source json.
+     * Each symbol {}[]:, is represented by an integer referring to its position in the source string.
+     * Opening bracket symbols {[ have an additional negative integer referring to the symbol index of
+     *   their matching closing bracket ]}
+     *   This additional value is used to avoid having to traverse the entirety of a value
+     *   when searching for elements or mappings.
+     *
+     * This is the only time that the library reads through the entirety of the source string.
+     * All subsequent queries to the JSON structure are done through the created symbol jump structure
+     *   and can be done in linear time.
+     * This ensures that irregardless of JSON structure complexity, the time complexity of the parsing
+     * process remains consistent and minimal.
+     */
+    private void findSymbols() {
+        JsonIndexEvent event = JsonIndexEvent.start();
+        startIndexing();
+        if (source == null) {
+            findByteSymbols();
+            finishIndexing();
+            indexed(event, (segments != null) ? "mapped" : "bytes");
+            return;
+        }
+        if (strictMode) {
+            indexStrictChars();
+            finishIndexing();
+            indexed(event, "chars");
+            return;
+        }
+
+        char quotes = '\u0000';
+        boolean escape = false;
+
+        int symbolIndex = 0;
+        int[] skips = this.skips;
+        int depth = 0;
+
+        boolean emptyStructure = false;
+        for (int i = 0, end = (int) length; i < end; i++) {
+            char c = chars[i];
+            if (!escape) {
+                if (quotes == '\u0000') {
+                    if (c == '{' || c == '[') {
+                        emptyStructure = true;
+                        addSymbol(symbolIndex++, i);
+                        if (depth == skips.length) skips = Arrays.copyOf(skips, depth * 2);
+                        skips[depth++] = symbolIndex;
+                        symbols[symbolIndex++] = PENDING;
+                    } else {
+                        if (c == '}' || c == ']') {
+                            if (emptyStructure) {
+                                addSymbol(symbolIndex, -1);         // Add sentinel character to denote empty array
+                                symbols[symbolIndex + 1] = i;       // Add array symbol
+                                symbolIndex += 2;
+                            } else {
+                                addSymbol(symbolIndex++, i);
+                            }
+                            if (depth > 0) symbols[skips[--depth]] = 1 - symbolIndex;
+                            else unmatchedClose(symbolIndex);
+                        } else if (c == ':' || c == ',') {
+                            addSymbol(symbolIndex++, i);
+                        } else if (c == '"' || c == '\'') {
+                            quotes = c;
+                        }
+                        if (c > ' ') emptyStructure = false;        // Whitespace may separate empty brackets
+                    }
+                } else if (c == quotes) quotes = '\u0000';
+            }
+
+            if (c == '\\') {
+                markEscape(symbolIndex);
+                escape = !escape;
+            } else escape = false;
+        }
+
+        this.skips = skips;
+        this.depth = depth;
+        this.symbolIndex = symbolIndex;
+        finishIndexing();
+        indexed(event, "chars");
+    }
+
+    /**
+     * Records a document that has just been indexed, see JsonIndexEvent and JsonMetrics. event is null unless a
+     *   recording had it enabled when indexing started.
+     */
+    private void indexed(JsonIndexEvent event, String source) {
+        if (event != null) event.end(this, source);
+        if (JsonMetrics.ENABLED) JsonMetrics.document(length);
+    }
+
+    /**
+     * Byte oriented equivalent of findSymbols(), used when reading UTF-8 sources.
+     * The symbols produced refer to byte offsets within the source buffer, or within the
+     *   concatenation of all segments for sources that are too large for a single buffer.
+     *
+     * The parse state is held in fields so that it can be carried between the scalar and
+     *   vectorized indexing passes, which may each only handle part of a buffer.
+     */
+    private void findByteSymbols() {
+        if (segments != null) {
+            long base = 0;
+            for (ByteBuffer segment : segments) {
+                index(segment, 0, segment.limit(), base);
+                base += segment.limit();
+            }
+        } else if (!strictMode && length >= parallelThreshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            findParallelSymbols();
+        } else {
+            index(bytes, start, start + (int) length, -start);
+        }
+    }
+
+    /**
+     * Indexes the bytes [from, to) of a buffer, or of the byte array source if buffer is null.
+     * The byte at index i is at source position base + i.
+     */
+    private void index(ByteBuffer buffer, int from, int to, long base) {
+        if (strictMode) {
+            indexStrictBytes(buffer, from, to, base);
+        } else if (vectorized) {
+            indexVector(buffer, from, to, base);
+        } else {
+            indexBytes(buffer, from, to, base);
+        }
+    }
+
+    /**
+     * Scalar indexing pass, see index().
+     */
+    private void indexBytes(ByteBuffer buffer, int from, int to, long base) {
+        byte[] array = this.array;
+        byte quotes = this.quotes;
+        boolean escape = this.escape;
+        boolean emptyStructure = this.emptyStructure;
+        int symbolIndex = this.symbolIndex;
+        int[] skips = this.skips;
+        int depth = this.depth;
+
+        for (int i = from; i < to; i++) {
+            byte c = (array != null) ? array[i] : buffer.get(i);
+            if (!escape) {
+                if (quotes == 0) {
+                    if (c == '{' || c == '[') {
+                        emptyStructure = true;
+                        addPosition(symbolIndex++, base + i);
+                        if (depth == skips.length) skips = Arrays.copyOf(skips, depth * 2);
+                        skips[depth++] = symbolIndex;
+                        symbols[symbolIndex++] = PENDING;
+                    } else {
+                        if (c == '}' || c == ']') {
+                            if (emptyStructure) {
+                                addSymbol(symbolIndex, -1);                 // Add sentinel character to denote empty array
+                                setPosition(symbolIndex + 1, base + i);     // Add array symbol
+                                symbolIndex += 2;
+                            } else {
+                                addPosition(symbolIndex++, base + i);
+                            }
+                            if (depth > 0) symbols[skips[--depth]] = 1 - symbolIndex;
+                            else unmatchedClose(symbolIndex);
+                        } else if (c == ':' || c == ',') {
+                            addPosition(symbolIndex++, base + i);
+                        } else if (c == '"' || c == '\'') {
+                            quotes = c;
+                        }
+                        if ((c & 0xFF) > ' ') emptyStructure = false;
+                    }
+                } else if (c == quotes) quotes = 0;
+            }
+
+            if (c == '\\') {
+                markEscape(symbolIndex);
+                escape = !escape;
+            } else escape = false;
+        }
+
+        this.quotes = quotes;
+        this.escape = escape;
+        this.emptyStructure = emptyStructure;
+        this.symbolIndex = symbolIndex;
+        this.skips = skips;
+        this.depth = depth;
+    }
+
+    /**
+     * Vectorized indexing pass, see index().
+     *
+     * The input is processed in blocks of 64 bytes. For each block a 64 bit mask is built for every class
+     *   of interesting byte, 8 bytes at a time using SWAR (SIMD within a register) comparisons, see JsonWords.
+     * Escaped bytes are found from the backslash mask, and the interiors of strings are found by taking the
+     *   prefix xor of the unescaped quote mask, so that the remaining structural bits can be emitted without
+     *   examining any of the other bytes in the block. The produced symbols are identical to those of indexBytes().
+     *
+     * Single quoted strings cannot be tracked alongside double quoted strings by a prefix xor, so any block
+     *   that contains or continues a single quoted string is handed to indexBytes() instead, as is any tail
+     *   that is shorter than a full block.
+     */
+    private void indexVector(ByteBuffer buffer, int from, int to, long base) {
+        byte[] array = this.array;
+        boolean reverse = (array == null) && buffer.order() == ByteOrder.BIG_ENDIAN;
+
+        int i = from;
+        for (; i + 64 <= to; i += 64) {
+            if (quotes == '\'') {
+                indexBytes(buffer, i, i + 64, base);
+                continue;
+            }
+
+            long quote = 0, backslash = 0, single = 0, open = 0, close = 0, separator = 0, space = 0;
+            for (int k = 0; k < 64; k += 8) {
+                long word = JsonWords.word(array, buffer, i + k, reverse);
+                long folded = word | JsonWords.FOLD_BYTES;
+                quote |= JsonWords.matches(word, JsonWords.QUOTE_BYTES) << k;
+                backslash |= JsonWords.matches(word, JsonWords.BACKSLASH_BYTES) << k;
+                single |= JsonWords.matches(word, JsonWords.SINGLE_QUOTE_BYTES) << k;
+                open |= JsonWords.matches(folded, JsonWords.OPEN_BYTES) << k;
+                close |= JsonWords.matches(folded, JsonWords.CLOSE_BYTES) << k;
+                separator |= (JsonWords.matches(word, JsonWords.COLON_BYTES)
+                    | JsonWords.matches(word, JsonWords.COMMA_BYTES)) << k;
+                space |= JsonWords.below(word, JsonWords.WHITESPACE_BYTES) << k;
+            }
+
+//            A backslash escapes the following byte, unless it is escaped itself
+            long escaped = escape ? 1 : 0;
+            boolean escapeOut = false;
+            for (long b = backslash & ~escaped; b != 0; ) {
+                long bit = b & -b;
+                if (bit == Long.MIN_VALUE) escapeOut = true;
+                escaped |= bit << 1;
+                b &= ~(bit | bit << 1);
+            }
+
+            long inString = JsonWords.prefixXor(quote & ~escaped);
+            if (quotes == '"') inString = ~inString;
+
+            if ((single & ~escaped & ~inString) != 0) {
+                indexBytes(buffer, i, i + 64, base);
+                continue;
+            }
+
+            long structural = (open | close | separator) & ~escaped & ~inString;
+            long opens = open & structural;
+//            A close is empty if only whitespace separates it from an open, found by carrying each bit following
+//            an open through the run of whitespace it starts. A carry out of the block continues into the next one
+            long follows = (opens << 1) | (emptyStructure ? 1 : 0);
+            long carried = (follows & space) + space;
+            long empties = close & (follows | (carried & ~space));
+
+            int symbolIndex = this.symbolIndex;
+            int[] skips = this.skips;
+            int depth = this.depth;
+            long pendingBackslash = backslash;
+            for (long remaining = structural; remaining != 0; remaining &= remaining - 1) {
+                long bit = remaining & -remaining;
+                long position = base + i + Long.numberOfTrailingZeros(remaining);
+                if ((pendingBackslash & (bit - 1)) != 0) {
+                    markEscape(symbolIndex);
+                    pendingBackslash &= -bit;
+                }
+                if ((opens & bit) != 0) {
+                    addPosition(symbolIndex++, position);
+                    if (depth == skips.length) skips = Arrays.copyOf(skips, depth * 2);
+                    skips[depth++] = symbolIndex;
+                    symbols[symbolIndex++] = PENDING;
+                } else if ((close & bit) != 0) {
+                    if ((empties & bit) != 0) {
+                        addSymbol(symbolIndex, -1);
+                        setPosition(symbolIndex + 1, position);
+                        symbolIndex += 2;
+                    } else {
+                        addPosition(symbolIndex++, position);
+                    }
+                    if (depth > 0) symbols[skips[--depth]] = 1 - symbolIndex;
+                    else unmatchedClose(symbolIndex);
+                } else {
+                    addPosition(symbolIndex++, position);
+                }
+            }
+            if (pendingBackslash != 0) markEscape(symbolIndex);
+            this.symbolIndex = symbolIndex;
+            this.skips = skips;
+            this.depth = depth;
+
+            quotes = (inString < 0) ? (byte) '"' : 0;
+            escape = escapeOut;
+            emptyStructure = opens < 0 || Long.compareUnsigned(carried, space) < 0;
+        }
+
+        if (i < to) indexBytes(buffer, i, to, base);
+    }
+
+    /**
+     * Strict equivalent of the char loop of findSymbols(), checking the grammar of the source while indexing it.
+     * See the Strict Mode section of JsonReader.
+     */
+    private void indexStrictChars() {
+        char[] chars = this.chars;
+        boolean inString = false;
+        boolean escape = false;
+        int grammar = this.grammar, atom = this.atom, hex = 0;
+
+        for (int i = 0, end = (int) length; i < end; i++) {
+            char c = chars[i];
+            if (inString) {
+                if (hex > 0) {
+                    if (!JsonGrammar.isHex(c)) throw JsonGrammar.invalidString(c, i);
+                    hex--;
+                } else if (escape) {
+                    if (!JsonGrammar.isEscape(c)) throw JsonGrammar.invalidString(c, i);
+                    if (c == 'u') hex = 4;
+                    escape = false;
+                } else if (c == '"') {
+                    inString = false;
+                } else if (c == '\\') {
+                    markEscape(symbolIndex);
+                    escape = true;
+                } else if (c < ' ') {
+                    throw JsonGrammar.invalidString(c, i);
+                }
+                continue;
+            }
+
+            int token = JsonGrammar.token(c);
+            if (atom != JsonGrammar.NONE) {
+                if (token == JsonGrammar.ATOM) {
+                    if ((atom = JsonGrammar.step(atom, c)) == JsonGrammar.NONE) throw JsonGrammar.invalidAtom(i);
+                    continue;
+                }
+                if (!JsonGrammar.accepts(atom)) throw JsonGrammar.invalidAtom(i);
+                atom = JsonGrammar.NONE;
+            }
+            if (token == JsonGrammar.WHITESPACE) continue;
+
+            grammar = structure(grammar, token, c, i);
+            if (token == JsonGrammar.STRING) {
+                inString = true;
+            } else if (token == JsonGrammar.ATOM && (atom = JsonGrammar.step(JsonGrammar.START, c)) == JsonGrammar.NONE) {
+                throw JsonGrammar.invalidAtom(i);
+            }
+        }
+
+        this.quotes = inString ? (byte) '"' : 0;
+        this.grammar = grammar;
+        this.atom = atom;
+    }
+
+    /**
+     * Strict equivalent of indexBytes(), see index().
+     *
+     * As in JsonValidator, strings and atoms each have an inner loop that runs to their end, skipping the plain content
+     *   of strings and the runs of digits of numbers 8 bytes at a time, so that the outer loop only sees whitespace and
+     *   the first byte of every token.
+     */
+    private void indexStrictBytes(ByteBuffer buffer, int from, int to, long base) {
+        byte[] array = this.array;
+        boolean reverse = (array == null) && buffer.order() == ByteOrder.BIG_ENDIAN;
+        boolean inString = quotes != 0;
+        boolean escape = this.escape;
+        int grammar = this.grammar, atom = this.atom, hex = this.hex;
+
+        int i = from;
+        while (i < to) {
+            if (inString) {
+                while (i < to) {
+                    if (hex == 0 && !escape) {
+                        for (; i + 8 <= to; i += 8) {
+                            long stops = JsonWords.stops(JsonWords.word(array, buffer, i, reverse));
+                            if (stops != 0) {
+                                i += Long.numberOfTrailingZeros(stops) >>> 3;
+                                break;
+                            }
+                        }
+                        if (i == to) break;
+                    }
+
+                    int c = ((array != null) ? array[i] : buffer.get(i)) & 0xFF;
+                    if (hex > 0) {
+                        if (!JsonGrammar.isHex(c)) throw JsonGrammar.invalidString(c, base + i);
+                        hex--;
+                    } else if (escape) {
+                        if (!JsonGrammar.isEscape(c)) throw JsonGrammar.invalidString(c, base + i);
+                        if (c == 'u') hex = 4;
+                        escape = false;
+                    } else if (c == '"') {
+                        inString = false;
+                        i++;
+                        break;
+                    } else if (c == '\\') {
+                        markEscape(symbolIndex);
+                        escape = true;
+                    } else if (c < ' ') {
+                        throw JsonGrammar.invalidString(c, base + i);
+                    }
+                    i++;
+                }
+                continue;
+            }
+
+            if (atom != JsonGrammar.NONE) {
+                while (i < to) {
+                    if (JsonGrammar.repeatsDigits(atom)) {
+                        for (; i + 8 <= to; i += 8) {
+                            long others = JsonWords.others(JsonWords.word(array, buffer, i, reverse));
+                            if (others != 0) {
+                                i += Long.numberOfTrailingZeros(others) >>> 3;
+                                break;
+                            }
+                        }
+                        if (i == to) break;
+                    }
+
+                    int c = ((array != null) ? array[i] : buffer.get(i)) & 0xFF;
+                    if (JsonGrammar.token(c) != JsonGrammar.ATOM) {
+                        if (!JsonGrammar.accepts(atom)) throw JsonGrammar.invalidAtom(base + i);
+                        atom = JsonGrammar.NONE;
+                        break;
+                    }
+                    if ((atom = JsonGrammar.step(atom, c)) == JsonGrammar.NONE) throw JsonGrammar.invalidAtom(base + i);
+                    i++;
+                }
+                continue;
+            }
+
+            int c = ((array != null) ? array[i] : buffer.get(i)) & 0xFF;
+            int token = JsonGrammar.token(c);
+            if (token != JsonGrammar.WHITESPACE) {
+                grammar = structure(grammar, token, c, base + i);
+                if (token == JsonGrammar.STRING) {
+                    inString = true;
+                } else if (token == JsonGrammar.ATOM && (atom = JsonGrammar.step(JsonGrammar.START, c)) == JsonGrammar.NONE) {
+                    throw JsonGrammar.invalidAtom(base + i);
+                }
+            }
+            i++;
+        }
+
+        this.quotes = inString ? (byte) '"' : 0;
+        this.escape = escape;
+        this.grammar = grammar;
+        this.atom = atom;
+        this.hex = hex;
+    }
+
+    /**
+     * Checks a token against the structural state of a strict pass and adds its symbols, returning the next state.
+     * Symbols are added in the same way as by the lenient passes, with the sentinel of an empty structure
+     *   written whenever a close bracket directly follows its open bracket in the grammar.
+     */
+    private int structure(int grammar, int token, int c, long position) {
+        int next = JsonGrammar.next(grammar, token);
+        if (next == JsonGrammar.ERROR) throw JsonGrammar.unexpected(c, position, grammar);
+        switch (token) {
+            case JsonGrammar.OPEN_OBJECT:
+            case JsonGrammar.OPEN_ARRAY:
+                addPosition(symbolIndex++, position);
+                if (depth == skips.length) skips = Arrays.copyOf(skips, depth * 2);
+                if (depth >>> 6 == kinds.length) kinds = Arrays.copyOf(kinds, kinds.length * 2);
+                if (token == JsonGrammar.OPEN_OBJECT) kinds[depth >>> 6] |= 1L << depth;
+                else kinds[depth >>> 6] &= ~(1L << depth);
+                skips[depth++] = symbolIndex;
+                symbols[symbolIndex++] = PENDING;
+                break;
+            case JsonGrammar.CLOSE_OBJECT:
+            case JsonGrammar.CLOSE_ARRAY:
+                if (grammar == JsonGrammar.ARRAY_FIRST || grammar == JsonGrammar.OBJECT_FIRST) {
+                    addSymbol(symbolIndex, -1);                 // Add sentinel character to denote empty array
+                    setPosition(symbolIndex + 1, position);
+                    symbolIndex += 2;
+                } else {
+                    addPosition(symbolIndex++, position);
+                }
+                symbols[skips[--depth]] = 1 - symbolIndex;
+                next = JsonGrammar.closed(depth, depth > 0 && (kinds[(depth - 1) >>> 6] >>> (depth - 1) & 1) != 0);
+                break;
+            case JsonGrammar.COLON:
+            case JsonGrammar.COMMA:
+                addPosition(symbolIndex++, position);
+                break;
+        }
+        return next;
+    }
 
-    String source;
-    public char[] chars;
-    public int[] symbols;
+    /**
+     * Checks that a strict pass has reached the end of a complete value at the end of the source, or at the end of
+     *   a line when indexing records, where a blank line is also accepted. Prepares the next record.
+     */
+    private void endStrict(long position, boolean record) {
+        String found = record ? "the end of the line at "+ position : "EOF";
+        if (quotes != 0) throw new IllegalStateException("Expected \", found "+ found);
+        if (hex > 0) throw new IllegalStateException("Expected a hex digit, found "+ found);
+        if (atom != JsonGrammar.NONE && !JsonGrammar.accepts(atom)) throw JsonGrammar.invalidAtom(position);
+        if (grammar != JsonGrammar.AFTER && !(record && grammar == JsonGrammar.VALUE)) {
+            throw new IllegalStateException("Expected "+ JsonGrammar.expected(grammar) +", found "+ found);
+        }
+        atom = JsonGrammar.NONE;
+        grammar = JsonGrammar.VALUE;
+    }
 
-    public JsonReader() {}
+    /**
+     * Handles a close bracket without a matching open bracket. This is an error unless only a single chunk
+     *   is being indexed, in which case the jump is resolved by findParallelSymbols() later.
+     */
+    private void unmatchedClose(int symbolIndex) {
+        if (unmatched == null) throw new IllegalStateException("Unexpected } or ], no structure to close");
+        if (unmatchedCount == unmatched.length) unmatched = Arrays.copyOf(unmatched, unmatchedCount * 2);
+        unmatched[unmatchedCount++] = symbolIndex;
+    }
 
-    public static JsonPointer read(String source) {
-        JsonReader reader = new JsonReader();
-        reader.source = source;
-        reader.chars = source.toCharArray();
-        reader.findSymbols();
-//        for (int i = 0; i < reader.symbols.length - 1; i++) {
-//            int s = reader.symbols[i];
-//            if (s >= 0) System.out.println(i +" -> "+ s +" -> "+ reader.chars[s]);
-//            else System.out.println(i +" -> "+ s);
-//        }
-//        System.out.println(Arrays.toString(reader.symbols));
-        return new JsonPointer(reader, -1);
+    /**
+     * Indexes a single buffer byte source by splitting it into chunks that are indexed in parallel.
+     * Chunk boundaries are moved forward past any open bracket or whitespace so that no empty structure spans
+     *   two chunks. The escape state at the start of a chunk only depends on the length of the run of
+     *   backslashes preceding it, leaving whether it starts inside a string as the only unknown state.
+     */
+    private void findParallelSymbols() {
+        int length = (int) this.length;
+        int chunkCount = Math.max(1, Math.min(length / PARALLEL_MIN_CHUNK, ForkJoinPool.getCommonPoolParallelism() * 4));
+
+        int[] boundaries = new int[chunkCount + 1];
+        boundaries[chunkCount] = length;
+        for (int k = 1; k < chunkCount; k++) {
+            int b = Math.max((int) ((long) length * k / chunkCount), boundaries[k - 1]);
+            while (b < length && (byteAt(b - 1) == '{' || byteAt(b - 1) == '[' || (byteAt(b - 1) & 0xFF) <= ' ')) b++;
+            boundaries[k] = b;
+        }
+
+        List<Callable<JsonReader>> tasks = new ArrayList<>();
+        for (int k = 0; k < chunkCount; k++) {
+            int from = boundaries[k], to = boundaries[k + 1];
+            tasks.add(() -> indexChunk(from, to, (byte) 0));
+            if (k > 0) tasks.add(() -> indexChunk(from, to, (byte) '"'));
+        }
+        List<Future<JsonReader>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+
+//        Select the chunk results that follow on from the state the previous chunk ended in
+        JsonReader[] chunks = new JsonReader[chunkCount];
+        long total = 1;
+        for (int k = 0, t = 0; k < chunkCount; k++) {
+            byte start = (k == 0) ? 0 : chunks[k - 1].quotes;
+            JsonReader outside = result(futures.get(t++));
+            JsonReader inside = (k == 0) ? null : result(futures.get(t++));
+            if (start == 0) chunks[k] = outside;
+            else if (start == '"') chunks[k] = inside;
+            else chunks[k] = indexChunk(boundaries[k], boundaries[k + 1], start);
+            total += chunks[k].symbolIndex;
+        }
+        if (total > MAX_SYMBOL_SIZE) throw new IllegalStateException("Too many symbols, index is full");
+
+//        Concatenate the chunk indexes, shifting their jumps and resolving jumps between chunks
+        if (symbols.length < total) symbols = new int[(int) total];
+        for (JsonReader chunk : chunks) {
+            int offset = symbolIndex;
+            appendChunk(chunk);
+            for (int j = 0; j < chunk.unmatchedCount; j++) {
+                if (depth == 0) throw new IllegalStateException("Unexpected } or ], no structure to close");
+                symbols[skips[--depth]] = 1 - (offset + chunk.unmatched[j]);
+            }
+            for (int j = 0; j < chunk.depth; j++) {
+                if (depth == skips.length) skips = Arrays.copyOf(skips, depth * 2);
+                skips[depth++] = offset + chunk.skips[j];
+            }
+        }
     }
 
     /**
-     * Adds a symbol to the symbols array, ensures there is enough space in the
-     *  array for the new symbol AND a jump index if required.
+     * Appends the symbols of a chunk that was indexed on its own, shifting its jumps and escapes.
+     * The symbols array must already have room for them.
      */
-    private void addSymbol(int symbolIndex, int i) {
-        if (symbolIndex + 1 >= symbols.length) {
-            int[] newArray = new int[(symbols.length + 1) * 2];
-            System.arraycopy(symbols, 0, newArray, 0, symbols.length);
-            symbols = newArray;
+    private void appendChunk(JsonReader chunk) {
+        int offset = symbolIndex;
+        for (int j = 0; j < chunk.symbolIndex; j++) {
+            int symbol = chunk.symbols[j];
+            symbols[offset + j] = (symbol < -1 && symbol != PENDING) ? symbol - offset : symbol;
         }
-        symbols[symbolIndex] = i;
+        for (int w = 0; w < chunk.escapeWords; w++) {
+            for (long bits = chunk.escapes[w]; bits != 0; bits &= bits - 1) {
+                markEscape(offset + (w << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        symbolIndex += chunk.symbolIndex;
     }
 
     /**
-     * Extracts the symbolic structure of the source json.
-     * Each symbol {}[]:, is represented by an integer referring to its position in the source string.
-     * Opening bracket symbols {[ have an additional negative integer referring to the symbol index of
-     *   their matching closing bracket ]}
-     *   This additional value is used to avoid having to traverse the entirety of a value
-     *   when searching for elements or mappings.
-     *
-     * This is the only time that the library reads through the entirety of the source string.
-     * All subsequent queries to the JSON structure are done through the created symbol jump structure
-     *   and can be done in linear time.
-     * This ensures that irregardless of JSON structure complexity, the time complexity of the parsing
-     * process remains consistent and minimal.
+     * Indexes the bytes [from, to) as a standalone chunk, starting in the given quote state.
      */
-    private void findSymbols() {
-        char quotes = '\u0000';
-        boolean escape = false;
+    private JsonReader indexChunk(int from, int to, byte quotes) {
+        JsonReader chunk = new JsonReader();
+        chunk.array = array;
+        chunk.bytes = bytes;
+        chunk.symbols = new int[Math.max(INITIAL_SYMBOL_SIZE, (to - from) >>> 3)];
+        chunk.skips = new int[INITIAL_DEPTH];
+        chunk.unmatched = new int[INITIAL_DEPTH];
+        chunk.quotes = quotes;
+        for (int i = from - 1; i >= 0 && byteAt(i) == '\\'; i--) chunk.escape = !chunk.escape;
 
-        int symbolIndex = 0;
-        Stack<Integer> skips = new Stack<>();
-//        Stack<Character> closer = new Stack<>();
+        chunk.index(bytes, start + from, start + to, -start);
+        return chunk;
+    }
 
-        symbols = new int[INITIAL_SYMBOL_SIZE];
+    /**
+     * Indexes the source as a sequence of records, one per line.
+     * Every record is followed by a separator symbol at the position of its newline, or at the end of the source
+     *   for a last line without one, so that each record is bounded by two symbols like any other value.
+     * Large single buffer sources are split at newlines and indexed in parallel, as no record can span two chunks.
+     */
+    private JsonLines findLines() {
+        JsonIndexEvent event = JsonIndexEvent.start();
+        startIndexing();
+        if (records == null) records = new int[INITIAL_DEPTH];
+        recordCount = 0;
+        lines = true;
+        if (segments == null && length >= parallelThreshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            findParallelLines();
+        } else {
+            indexLines(0, length);
+        }
+        padSymbols();
+        trimSymbols();
+        indexed(event, "lines");
+        return new JsonLines(this, Arrays.copyOf(records, recordCount));
+    }
 
-        boolean emptyStructure = false;
-        for (int i = 0, end = chars.length; i < end; i++) {
-            char c = chars[i];
-            if (!escape) {
-                if (quotes == '\u0000') {
-                    if (c == '{' || c == '[') {
-                        emptyStructure = true;
-                        addSymbol(symbolIndex++, i);
-                        skips.push(symbolIndex++);
-//                        closer.push((c == '{') ? '}' : ']');
-                    } else {
-                        if (c == '}' || c == ']') {
-//                            if (closer.empty() || closer.pop() != c) throw new IllegalStateException("Mismatched bracers! "+ c);
+    /**
+     * Indexes the lines starting within [from, to), where from is at the start of a line.
+     */
+    private void indexLines(long from, long to) {
+        int separator = -1;
+        for (long lineStart = from; lineStart < to; ) {
+            long lineEnd = lineEnd(lineStart, to);
+            int first = symbolIndex;
+            indexRange(lineStart, lineEnd);
+            if (depth != 0 || quotes != 0) throw new IllegalStateException("Incomplete record on the line ending at "+ lineEnd);
+            if (strictMode) endStrict(lineEnd, true);
+            escape = false;
+            emptyStructure = false;
 
-                            if (emptyStructure) {
-                                addSymbol(symbolIndex, -1);         // Add sentinel character to denote empty array
-                                symbols[symbolIndex + 1] = i;       // Add array symbol
-                                symbolIndex += 2;
-                            } else {
-                                addSymbol(symbolIndex++, i);
-                            }
-                            symbols[skips.pop()] = 1 - symbolIndex;
-                        } else if (c == ':' || c == ',') {
-                            addSymbol(symbolIndex++, i);
-                        } else if (c == '"' || c == '\'') {
-                            quotes = c;
-                        }
-                        emptyStructure = false;
-                    }
-                } else if (c == quotes) quotes = '\u0000';
+            if (symbolIndex != first || !isBlank(lineStart, lineEnd)) {
+                if (recordCount == records.length) records = Arrays.copyOf(records, recordCount * 2);
+                records[recordCount++] = separator;
+                separator = symbolIndex;
+                addPosition(symbolIndex++, lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Indexes the source between two positions, splitting the range between segments where necessary.
+     */
+    private void indexRange(long from, long to) {
+        if (segments == null) {
+            index(bytes, start + (int) from, start + (int) to, -start);
+            return;
+        }
+
+        while (from < to) {
+            int k = (int) (from >>> SEGMENT_SHIFT);
+            long base = (long) k << SEGMENT_SHIFT;
+            long end = Math.min(to, base + SEGMENT_SIZE);
+            index(segments[k], (int) (from - base), (int) (end - base), base);
+            from = end;
+        }
+    }
+
+    /**
+     * Returns the position of the first newline at or after from, or to if there is none before it.
+     * Single buffer sources are searched 8 bytes at a time.
+     */
+    private long lineEnd(long from, long to) {
+        long i = from;
+        if (segments == null) {
+            boolean reverse = (array == null) && bytes.order() == ByteOrder.BIG_ENDIAN;
+            for (; i + 8 <= to; i += 8) {
+                long word = (array != null) ? (long) JsonWords.LONGS.get(array, (int) i) : bytes.getLong(start + (int) i);
+                if (reverse) word = Long.reverseBytes(word);
+                long newlines = JsonWords.matches(word, JsonWords.NEWLINE_BYTES);
+                if (newlines != 0) return i + Long.numberOfTrailingZeros(newlines);
             }
+        }
+        for (; i < to; i++) {
+            if (byteAt(i) == '\n') return i;
+        }
+        return to;
+    }
+
+    private boolean isBlank(long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (byteAt(i) > ' ' || byteAt(i) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Indexes the lines of a single buffer source in chunks that are split at newlines.
+     * The records of each chunk are relative to its own symbols, with -1 referring to the separator
+     *   that ends the previous chunk.
+     */
+    private void findParallelLines() {
+        int length = (int) this.length;
+        int chunkCount = Math.max(1, Math.min(length / PARALLEL_MIN_CHUNK, ForkJoinPool.getCommonPoolParallelism() * 4));
+
+        List<Callable<JsonReader>> tasks = new ArrayList<>();
+        for (int k = 0, from = 0; k < chunkCount && from < length; k++) {
+            int to = (k == chunkCount - 1) ? length : Math.max((int) ((long) length * (k + 1) / chunkCount), from);
+            while (to < length && byteAt(to - 1) != '\n') to++;
+            int chunkFrom = from, chunkTo = to;
+            tasks.add(() -> indexLineChunk(chunkFrom, chunkTo));
+            from = to;
+        }
+        List<Future<JsonReader>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+
+        JsonReader[] chunks = new JsonReader[futures.size()];
+        long total = 1;
+        int totalRecords = 0;
+        for (int k = 0; k < chunks.length; k++) {
+            chunks[k] = result(futures.get(k));
+            total += chunks[k].symbolIndex;
+            totalRecords += chunks[k].recordCount;
+        }
+        if (total > MAX_SYMBOL_SIZE) throw new IllegalStateException("Too many symbols, index is full");
 
-            escape = (c == '\\') && !escape;
+        if (symbols.length < total) symbols = new int[(int) total];
+        if (records.length < totalRecords) records = new int[totalRecords];
+        for (JsonReader chunk : chunks) {
+            int offset = symbolIndex;
+            for (int j = 0; j < chunk.recordCount; j++) {
+                int record = chunk.records[j];
+                records[recordCount++] = (record < 0) ? offset - 1 : offset + record;
+            }
+            appendChunk(chunk);
         }
+    }
 
-        if (!skips.empty()) throw new IllegalStateException("Expected } or ], found EOF");
+    private JsonReader indexLineChunk(int from, int to) {
+        JsonReader chunk = new JsonReader();
+        chunk.array = array;
+        chunk.bytes = bytes;
+        chunk.start = start;
+        chunk.length = length;
+        chunk.symbols = new int[Math.max(INITIAL_SYMBOL_SIZE, (to - from) >>> 3)];
+        chunk.skips = new int[INITIAL_DEPTH];
+        chunk.records = new int[INITIAL_DEPTH];
+        chunk.strictMode = strictMode;
+        chunk.startIndexing();
+        chunk.indexLines(from, to);
+        return chunk;
+    }
 
-//        Cut down size of symbols array Leave zero pad at end for jump checking overflow protection
-//        Note that since symbol exploration is always bounded by jumps, padded 0s will never be treated
-//          as symbols. An addition, since addSymbol always ensures there is enough space for a jump
-//          character, symbol will always end in a valid jump or at least one padded 0
-        if (symbols.length > symbolIndex + 1) {
-            int[] newSymbols = new int[symbolIndex + 1];
-            System.arraycopy(symbols, 0, newSymbols, 0, symbolIndex);
-             symbols = newSymbols;
+    private static JsonReader result(Future<JsonReader> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while indexing", e);
+        } catch (ExecutionException e) {
+//            The pool rethrows an exception of another thread as a copy of it that wraps the original, whose message is
+//            the one to report
+            Throwable cause = e.getCause();
+            if (cause.getCause() != null && cause.getCause().getClass() == cause.getClass()) cause = cause.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
         }
     }
 
@@ -174,25 +1677,284 @@ public class JsonReader {
      * Extracts the substring of the json string bounded by two symbols.
      */
     String getString(int startSymbol, int endSymbol) {
-        return source.substring(symbols[startSymbol] + 1, symbols[endSymbol]);
+        return substring(position(startSymbol) + 1, position(endSymbol));
+    }
+
+    /**
+     * Parses the number bounded by two symbols in place, see JsonNumbers.
+     */
+    int getInt(int startSymbol, int endSymbol) {
+        if (JsonMetrics.ENABLED) JsonMetrics.number();
+        return JsonNumbers.parseInt(this, position(startSymbol) + 1, position(endSymbol));
+    }
+
+    long getLong(int startSymbol, int endSymbol) {
+        if (JsonMetrics.ENABLED) JsonMetrics.number();
+        return JsonNumbers.parseLong(this, position(startSymbol) + 1, position(endSymbol));
+    }
+
+    double getDouble(int startSymbol, int endSymbol) {
+        if (JsonMetrics.ENABLED) JsonMetrics.number();
+        return JsonNumbers.parseDouble(this, position(startSymbol) + 1, position(endSymbol));
+    }
+
+    float getFloat(int startSymbol, int endSymbol) {
+        if (JsonMetrics.ENABLED) JsonMetrics.number();
+        return JsonNumbers.parseFloat(this, position(startSymbol) + 1, position(endSymbol));
+    }
+
+    boolean getBoolean(int startSymbol, int endSymbol) {
+        return JsonNumbers.parseBoolean(this, position(startSymbol) + 1, position(endSymbol));
+    }
+
+    boolean isNull(int startSymbol, int endSymbol) {
+        return JsonNumbers.isNull(this, position(startSymbol) + 1, position(endSymbol));
+    }
+
+    /**
+     * Extracts the decoded contents of the string bounded by two symbols.
+     * Strings without escapes are copied out of the source once, without being decoded again.
+     * Values that are not strings are returned as their trimmed raw text.
+     */
+    String getDecodedString(int startSymbol, int endSymbol) {
+        long open = openQuote(startSymbol, endSymbol);
+        if (open < 0) return getString(startSymbol, endSymbol).strip();
+        String contents = substring(open + 1, closeQuote(open, endSymbol));
+        return hasEscapes(endSymbol) ? JsonUtil.unescape(contents) : contents;
+    }
+
+    /**
+     * Returns the contents of the string bounded by two symbols as a view over the source, without copying them.
+     * Strings that contain escapes, or non ASCII characters in a byte source, can not be viewed in place
+     *   and are decoded into a String instead.
+     */
+    CharSequence getCharSequence(int startSymbol, int endSymbol) {
+        long open = openQuote(startSymbol, endSymbol);
+        if (open < 0 || hasEscapes(endSymbol)) return getDecodedString(startSymbol, endSymbol);
+        long close = closeQuote(open, endSymbol);
+        if (source == null && !isAscii(open + 1, close)) return substring(open + 1, close);
+        return new JsonSlice(this, open + 1, (int) (close - open - 1));
+    }
+
+    /**
+     * Compares the contents of the string bounded by two symbols with a CharSequence, without decoding them
+     *   unless the string contains escapes.
+     */
+    boolean contentEquals(int startSymbol, int endSymbol, CharSequence other) {
+        long open = openQuote(startSymbol, endSymbol);
+        if (open < 0 || hasEscapes(endSymbol)) return getDecodedString(startSymbol, endSymbol).contentEquals(other);
+        return regionEquals(open + 1, closeQuote(open, endSymbol), other);
+    }
+
+    /**
+     * Hashes the contents of the string bounded by two symbols in the same way as String.hashCode(), without
+     *   decoding them unless the string contains escapes.
+     */
+    int contentHash(int startSymbol, int endSymbol) {
+        long open = openQuote(startSymbol, endSymbol);
+        if (open < 0 || hasEscapes(endSymbol)) return getDecodedString(startSymbol, endSymbol).hashCode();
+        return regionHash(open + 1, closeQuote(open, endSymbol));
+    }
+
+    /**
+     * Returns the position of the opening quote of the string bounded by two symbols,
+     *   or -1 if the value is not a string.
+     */
+    long openQuote(int startSymbol, int endSymbol) {
+        long i = position(startSymbol) + 1, end = position(endSymbol);
+        while (i < end && charAt(i) <= ' ') i++;
+        if (i < end && (charAt(i) == '"' || charAt(i) == '\'')) return i;
+        return -1;
+    }
+
+    /**
+     * Returns the position of the quote closing a string, searching back from its end symbol.
+     */
+    long closeQuote(long openQuote, int endSymbol) {
+        char quote = charAt(openQuote);
+        long i = position(endSymbol) - 1;
+        while (i > openQuote && charAt(i) != quote) i--;
+        return (i > openQuote) ? i : position(endSymbol);
     }
 
     /**
-     * Extracts a quoted string from the json string bounded by two symbols.
+     * Returns true if a backslash occurs anywhere between a symbol and the symbol preceding it.
      */
-    String getQuotedString(int startSymbol, int endSymbol) {
-        int firstQuote = source.indexOf('"', symbols[startSymbol] + 1);
-        int lastQuote = source.lastIndexOf('"', symbols[endSymbol]);
-        return source.substring(firstQuote + 1, lastQuote);
+    boolean hasEscapes(int symbol) {
+        int word = symbol >>> 6;
+        return word < escapeWords && (escapes[word] & (1L << symbol)) != 0;
     }
 
     /**
      * Extracts the char that represents the symbol at a given symbol index.
      * This is only used for identity checks when accessing JsonPointer as an
      *   array or object.
+     * The separator following the last of a set of lines may be positioned at the end of the source,
+     *   in which case it is read as a newline.
      */
     char getChar(int symbol) {
-        return chars[symbols[symbol]];
+        long position = position(symbol);
+        return (position < length) ? charAt(position) : '\n';
+    }
+
+    /**
+     * Returns the raw entry of the symbols at a given symbol index, from wherever they are held.
+     */
+    int symbolAt(int symbol) {
+        int[] symbols = this.symbols;
+        if (symbols != null) return symbols[symbol];
+        JsonCompactSymbols compact = this.compact;
+        if (compact != null) return compact.get(symbol);
+        if (offHeap == null) throw new IllegalStateException("Document has been closed");
+        return offHeap.symbols.get(symbol);
+    }
+
+    /**
+     * Returns the source position of the symbol at a given symbol index.
+     * The root of a document, at symbol index -1, is positioned immediately before the start of the source.
+     */
+    long position(int symbol) {
+        if (symbol < 0) return -1;
+        if (bases == null) return symbolAt(symbol);
+        return bases[symbol >>> BLOCK_SHIFT] + symbolAt(symbol);
+    }
+
+    /**
+     * Returns true if the value following a symbol has been indexed entirely.
+     * This is always the case unless the document is still being read incrementally, in which case
+     *   a value is complete once the symbol following it has been indexed, after the close bracket for
+     *   an array or object.
+     */
+    boolean isComplete(int symbol) {
+        if (!incremental) return true;
+        int start = next(symbol);
+        if (start >= symbolIndex || symbolAt(start + 1) == PENDING) return false;
+        return skipBrackets(start) < symbolIndex;
+    }
+
+    /**
+     * Returns true if a symbol index has not been reached yet by an incremental read.
+     */
+    boolean isPending(int symbol) {
+        return incremental && symbol >= symbolIndex;
+    }
+
+    /**
+     * Returns the element index of the non empty array opening at a symbol, from the index cache where possible.
+     * Arrays of a document that is still being read incrementally are indexed again on every call.
+     */
+    JsonElements elements(int start) {
+        Object cached = cached(start);
+        if (cached != null) return (JsonElements) cached;
+        JsonContainerEvent event = JsonContainerEvent.start();
+        JsonElements elements = JsonElements.of(this, start);
+        if (event != null) event.end("array", elements.size(), start);
+        if (JsonMetrics.ENABLED) JsonMetrics.containerIndex();
+        cache(start, elements);
+        return elements;
+    }
+
+    /**
+     * Returns the key index of the non empty object opening at a symbol, see elements(int).
+     */
+    JsonKeys keys(int start) {
+        Object cached = cached(start);
+        if (cached != null) return (JsonKeys) cached;
+        JsonContainerEvent event = JsonContainerEvent.start();
+        JsonKeys keys = JsonKeys.of(this, start + 2);
+        if (event != null) event.end("object", keys.size(), start);
+        if (JsonMetrics.ENABLED) JsonMetrics.containerIndex();
+        cache(start, keys);
+        return keys;
+    }
+
+    private Object cached(int start) {
+        JsonIndexCache indexCache = this.indexCache;
+        return (indexCache == null || incremental) ? null : indexCache.get(start);
+    }
+
+    private void cache(int start, Object index) {
+        if (incremental || indexCacheSize <= 0) return;
+        JsonIndexCache indexCache = this.indexCache;
+        if (indexCache == null) {
+//            Threads of a shared document that race to create the cache all end up using the same one
+            JsonIndexCache created = new JsonIndexCache(indexCacheSize);
+            indexCache = (JsonIndexCache) INDEX_CACHE.compareAndExchange(this, null, created);
+            if (indexCache == null) indexCache = created;
+        }
+        indexCache.put(start, index);
+    }
+
+    /**
+     * Returns the binding of a key within the object following a symbol, if the key is found at the slot predicted
+     *   by previous lookups of the key in other objects, see JsonShapes. Returns -1 otherwise, and without predicting
+     *   when the object already has a cached key index or has more than JsonShapes.MAX_KEYS keys.
+     */
+    int predictBinding(int symbol, CharSequence key) {
+        if (!predictShapes || incremental) return -1;
+        int start = next(symbol);
+        if (getChar(start) != '{' || isEmpty(start) || cached(start) != null) return -1;
+
+        JsonShapes shapes = shapes();
+        int slot = shapes.slot(key, JsonKeys.hash(key));
+        if (slot >= JsonShapes.MAX_KEYS) return -1;
+        int binding = -1;
+        if (slot >= 0) {
+//            Skip over the preceding keys, which only needs their jumps
+            binding = start + 2;
+            for (int n = 0; n < slot && binding >= 0; n++) {
+                int end = skipBrackets(next(binding));
+                binding = (getChar(end) == ',') ? end + 1 : -1;
+            }
+            if (binding >= 0 && (getChar(binding) != ':' || !contentEquals(prev(binding), binding, key))) binding = -1;
+//            The key index finds the last occurrence of a duplicate key, so the keys that follow must differ from it.
+//            A key whose quotes span fewer chars or bytes than the key has cannot match, escaped or not
+            int keys = slot + 1;
+            for (int end = (binding >= 0) ? skipBrackets(next(binding)) : -1; end >= 0 && getChar(end) == ','; keys++) {
+                if (keys == JsonShapes.MAX_KEYS) return -1;
+                int later = end + 1;
+                if (position(later) - position(end) - 3 >= key.length() && contentEquals(end, later, key)) binding = later;
+                end = skipBrackets(next(later));
+            }
+        }
+        (binding < 0 ? shapes.misses : shapes.hits).increment();
+        return binding;
+    }
+
+    /**
+     * Records the slot at which a key was found, after its predicted slot missed.
+     */
+    void learnShape(CharSequence key, int slot) {
+        if (!predictShapes || incremental) return;
+        shapes().learn(key, JsonKeys.hash(key), slot);
+    }
+
+    private JsonShapes shapes() {
+        JsonShapes shapes = this.shapes;
+        if (shapes == null) {
+            JsonShapes created = new JsonShapes();
+            shapes = (JsonShapes) SHAPES.compareAndExchange(this, null, created);
+            if (shapes == null) shapes = created;
+        }
+        return shapes;
+    }
+
+    /**
+     * Returns the number of key lookups that were found at their predicted slot, see JsonShapes.
+     * Counted over every document read with this reader.
+     */
+    public long shapeHits() {
+        JsonShapes shapes = this.shapes;
+        return (shapes == null) ? 0 : shapes.hits.sum();
+    }
+
+    /**
+     * Returns the number of key lookups that had no prediction or were not found at it, and so fell back
+     *   to the key index of their object.
+     */
+    public long shapeMisses() {
+        JsonShapes shapes = this.shapes;
+        return (shapes == null) ? 0 : shapes.misses.sum();
     }
 
     /**
@@ -200,14 +1962,14 @@ public class JsonReader {
      * Else true
      */
     boolean isEmpty(int startSymbol) {
-        return symbols[startSymbol + 1] >= 0 || symbols[startSymbol + 2] < 0;
+        return symbolAt(startSymbol + 1) >= 0 || symbolAt(startSymbol + 2) < 0;
     }
 
     /**
      * Returns the next symbol index
      */
     int next(int symbol) {
-        if (symbols[symbol + 1] < 0) return symbol + 2;
+        if (symbolAt(symbol + 1) < 0) return symbol + 2;
         return symbol + 1;
     }
 
@@ -215,7 +1977,7 @@ public class JsonReader {
      * Returns the previous symbol index
      */
     int prev(int symbol) {
-        if (symbols[symbol - 1] < 0) return symbol - 2;
+        if (symbolAt(symbol - 1) < 0) return symbol - 2;
         return symbol - 1;
     }
 
@@ -226,7 +1988,7 @@ public class JsonReader {
      * This is used to skip to the ending of an internal block
      */
     int matchingClose(int symbol) {
-        return -symbols[symbol + 1];
+        return -symbolAt(symbol + 1);
     }
 
     /**
@@ -236,8 +1998,163 @@ public class JsonReader {
      * This is used to skip over non-atomic values
      */
     int skipBrackets(int symbol) {
-        int j = symbols[symbol + 1];
+        int j = symbolAt(symbol + 1);
         if (j < 0) return 1 - j;
         return symbol;
     }
+
+    /*
+    *  Source Access Functions
+    *
+    *  The following functions abstract over whether the json was supplied as a String or as UTF-8 bytes.
+    *  For byte sources all positions are byte offsets, and only the requested range is ever decoded.
+    */
+
+    /**
+     * Returns the source char at a position. For byte sources this is only meaningful for ASCII
+     *   characters, which includes every symbol and quote.
+     */
+    char charAt(long position) {
+        if (source != null) return chars[(int) position];
+        return (char) byteAt(position);
+    }
+
+    /**
+     * Returns the source byte at a position of a byte source.
+     */
+    byte byteAt(long position) {
+        if (array != null) return array[(int) position];
+        if (segments == null) return bytes.get(start + (int) position);
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Returns the length of the source, in chars or bytes.
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Decodes the source between two positions into a String.
+     */
+    String substring(long from, long to) {
+        if (JsonMetrics.ENABLED) JsonMetrics.string();
+        if (source != null) return source.substring((int) from, (int) to);
+        if (to - from > Integer.MAX_VALUE) throw new IllegalStateException("Value too large for a String");
+        if (array != null) return new String(array, (int) from, (int) (to - from), StandardCharsets.UTF_8);
+        if (segments == null && bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + start + (int) from, (int) (to - from), StandardCharsets.UTF_8);
+        }
+
+        byte[] slice = new byte[(int) (to - from)];
+        for (int n = 0; n < slice.length; ) {
+            long position = from + n;
+            ByteBuffer buffer = (segments == null) ? bytes.duplicate() : segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            buffer.position((segments == null) ? start + (int) position : (int) (position & SEGMENT_MASK));
+            int count = Math.min(buffer.remaining(), slice.length - n);
+            buffer.get(slice, n, count);
+            n += count;
+        }
+        return new String(slice, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns true if the source between two positions only contains ASCII characters.
+     */
+    boolean isAscii(long from, long to) {
+        if (source != null) return true;
+        for (long i = from; i < to; i++) {
+            if (byteAt(i) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the source between two positions with a CharSequence.
+     * Byte sources are decoded one code point at a time while comparing, so no String is created.
+     */
+    boolean regionEquals(long from, long to, CharSequence other) {
+        int length = other.length();
+        if (source != null) {
+            if (to - from != length) return false;
+            for (int n = 0; n < length; n++) {
+                if (chars[(int) from + n] != other.charAt(n)) return false;
+            }
+            return true;
+        }
+
+        if (to - from < length) return false;
+        int n = 0;
+        for (long i = from; i < to; ) {
+            int b = byteAt(i++);
+            if (b >= 0) {
+                if (n == length || other.charAt(n++) != b) return false;
+                continue;
+            }
+
+            int size = (b >= (byte) 0xF0) ? 3 : (b >= (byte) 0xE0) ? 2 : 1;
+            int codePoint = b & (0x3F >>> size);
+            if (i + size > to) return false;
+            for (int k = 0; k < size; k++) codePoint = (codePoint << 6) | (byteAt(i++) & 0x3F);
+
+            if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (n + 1 >= length) return false;
+                if (other.charAt(n++) != Character.highSurrogate(codePoint)) return false;
+                if (other.charAt(n++) != Character.lowSurrogate(codePoint)) return false;
+            } else if (n == length || other.charAt(n++) != codePoint) return false;
+        }
+        return n == length;
+    }
+
+    /**
+     * Hashes the source between two positions in the same way as String.hashCode() would for its decoded text.
+     */
+    int regionHash(long from, long to) {
+        int h = 0;
+        if (source != null) {
+            for (int i = (int) from; i < to; i++) h = 31 * h + chars[i];
+            return h;
+        }
+
+        for (long i = from; i < to; ) {
+            int b = byteAt(i++);
+            if (b >= 0) {
+                h = 31 * h + b;
+                continue;
+            }
+
+            int size = (b >= (byte) 0xF0) ? 3 : (b >= (byte) 0xE0) ? 2 : 1;
+            int codePoint = b & (0x3F >>> size);
+            for (int k = 0; k < size && i < to; k++) codePoint = (codePoint << 6) | (byteAt(i++) & 0x3F);
+
+            if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                h = 31 * h + Character.highSurrogate(codePoint);
+                h = 31 * h + Character.lowSurrogate(codePoint);
+            } else h = 31 * h + codePoint;
+        }
+        return h;
+    }
+
+    /**
+     * Returns the position of the first occurrence of an ASCII char at or after from, or -1.
+     */
+    long indexOf(char c, long from) {
+        if (source != null) return source.indexOf(c, (int) from);
+        for (long i = from; i < length; i++) {
+            if (byteAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the position of the last occurrence of an ASCII char at or before from, or -1.
+     */
+    long lastIndexOf(char c, long from) {
+        if (source != null) return source.lastIndexOf(c, (int) from);
+        for (long i = from; i >= 0; i--) {
+            if (byteAt(i) == c) return i;
+        }
+        return -1;
+    }
 }
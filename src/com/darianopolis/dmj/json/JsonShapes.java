@@ -0,0 +1,63 @@
+package com.darianopolis.dmj.json;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Predicts the slot of a key within an object from the objects it has been looked up in before.
+ *
+ * The objects of a large array or a set of json lines usually share the same keys in the same order. Once a key
+ *   has been found in one object, its slot (the number of keys preceding it) is remembered, and a lookup of the
+ *   same key in a sibling object first skips straight to that slot through the jumps of the symbol index and
+ *   compares the one key found there. Only on a miss is the key index of the object built, which then teaches
+ *   the prediction the slot of the key in that object.
+ *
+ * Predictions are held in a direct mapped table of immutable entries, keyed by the hash of the key, and every
+ *   prediction is checked against the source before it is used. Threads sharing a document can therefore at
+ *   worst overwrite each other's predictions, and never receive a wrong value.
+ * A hit still compares the keys that follow the predicted slot, so that where an object contains a key more than
+ *   once, the last occurrence is found, as it is by the key index.
+ *
+ * A prediction therefore costs a step for every key of the object, and is only made for objects of at most MAX_KEYS
+ *   keys that have no key index yet. Wider objects, and objects looked up again through a new pointer, use their
+ *   key index, which is built once and then cached by the reader.
+ */
+final class JsonShapes {
+    static final int MAX_KEYS = 32;
+    private static final int SIZE = 256;
+
+    private static final class Entry {
+        final String key;
+        final int hash;
+        final int slot;
+
+        Entry(String key, int hash, int slot) {
+            this.key = key;
+            this.hash = hash;
+            this.slot = slot;
+        }
+    }
+
+    private final Entry[] entries = new Entry[SIZE];
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+
+    /**
+     * Returns the predicted slot of a key, or -1 if the key has not been found in any object yet.
+     */
+    int slot(CharSequence key, int hash) {
+        Entry entry = entries[index(hash)];
+        if (entry == null || entry.hash != hash || !entry.key.contentEquals(key)) return -1;
+        return entry.slot;
+    }
+
+    void learn(CharSequence key, int hash, int slot) {
+        int index = index(hash);
+        Entry entry = entries[index];
+        if (entry != null && entry.hash == hash && entry.slot == slot && entry.key.contentEquals(key)) return;
+        entries[index] = new Entry(key.toString(), hash, slot);
+    }
+
+    private static int index(int hash) {
+        return (hash ^ (hash >>> 16)) & (SIZE - 1);
+    }
+}
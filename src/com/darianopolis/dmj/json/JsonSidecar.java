@@ -0,0 +1,148 @@
+package com.darianopolis.dmj.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * The symbol index of a byte source persisted to a sidecar file, see the Index Files section of JsonReader.
+ *
+ * The file is little endian, with a header of HEADER bytes:
+ *   0   magic "DMJX"               4   version
+ *   8   length of the source       16  CRC32C of the source        20  CRC32C of everything after the header
+ *   24  symbolIndex                28  number of stored symbols    32  escape words    36  base count
+ * followed by the symbols as ints, the escape bit set as longs and the block bases as longs. The symbols are
+ *   mapped back in place and read through an IntBuffer view, while the escapes and bases, at most a 32nd of the
+ *   size of the symbols, are copied onto the heap.
+ *
+ * A file is only used if its magic, version and source length match and every section fits in the file. Unless
+ *   JsonReader.trustIndexFiles is set, both checksums are verified as well, which reads the whole source and index
+ *   once, at a small fraction of the cost of indexing the source again.
+ */
+final class JsonSidecar {
+    private static final int MAGIC = 'D' | 'M' << 8 | 'J' << 16 | 'X' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    final MappedByteBuffer mapped;
+    final IntBuffer symbols;
+    final int symbolIndex;
+    final long[] escapes;
+    final long[] bases;
+
+    private JsonSidecar(MappedByteBuffer mapped, IntBuffer symbols, int symbolIndex, long[] escapes, long[] bases) {
+        this.mapped = mapped;
+        this.symbols = symbols;
+        this.symbolIndex = symbolIndex;
+        this.escapes = escapes;
+        this.bases = bases;
+    }
+
+    /**
+     * Writes the index of the document of a reader, first to a temporary file next to the sidecar, which then
+     *   replaces it, so that a sidecar is never seen half written.
+     */
+    static void write(JsonReader reader, Path sidecar) throws IOException {
+        int count = reader.storedSymbolCount();
+        int escapeWords = reader.escapeWords, baseCount = (reader.bases != null) ? reader.baseCount : 0;
+        long size = HEADER + 4L * count + 8L * escapeWords + 8L * baseCount;
+        if (size > Integer.MAX_VALUE) throw new IllegalStateException("Index too large for an index file");
+
+        Path temporary = sidecar.resolveSibling(sidecar.getFileName() +".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C checksum = new CRC32C();
+            channel.position(HEADER);
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < 4) flush(channel, buffer, checksum);
+                buffer.putInt(reader.symbolAt(i));
+            }
+            for (int i = 0; i < escapeWords; i++) {
+                if (buffer.remaining() < 8) flush(channel, buffer, checksum);
+                buffer.putLong(reader.escapes[i]);
+            }
+            for (int i = 0; i < baseCount; i++) {
+                if (buffer.remaining() < 8) flush(channel, buffer, checksum);
+                buffer.putLong(reader.bases[i]);
+            }
+            flush(channel, buffer, checksum);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(reader.length)
+                .putInt(sourceChecksum(reader)).putInt((int) checksum.getValue())
+                .putInt(reader.symbolIndex).putInt(count).putInt(escapeWords).putInt(baseCount);
+            header.clear();
+            while (header.hasRemaining()) channel.write(header, header.position());
+        }
+        Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C checksum) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Maps the sidecar of the source of a reader, returning null if there is none or it does not match the source.
+     */
+    static JsonSidecar read(JsonReader reader, Path sidecar, boolean verify) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) return null;
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        ByteBuffer file = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (file.getInt(0) != MAGIC || file.getInt(4) != VERSION || file.getLong(8) != reader.length) return null;
+        int symbolIndex = file.getInt(24), count = file.getInt(28), escapeWords = file.getInt(32), baseCount = file.getInt(36);
+        if (symbolIndex < 0 || count <= symbolIndex || escapeWords < 0 || baseCount < 0) return null;
+        if (HEADER + 4L * count + 8L * escapeWords + 8L * baseCount != file.capacity()) return null;
+        if ((baseCount > 0) != (reader.bases != null)) return null;
+
+        if (verify) {
+            CRC32C checksum = new CRC32C();
+            checksum.update(file.duplicate().position(HEADER));
+            if ((int) checksum.getValue() != file.getInt(20) || sourceChecksum(reader) != file.getInt(16)) return null;
+        }
+
+        IntBuffer symbols = file.duplicate().position(HEADER).limit(HEADER + 4 * count).slice()
+            .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        int offset = HEADER + 4 * count;
+        long[] escapes = (escapeWords > 0) ? new long[escapeWords] : null;
+        for (int i = 0; i < escapeWords; i++, offset += 8) escapes[i] = file.getLong(offset);
+        long[] bases = (baseCount > 0) ? new long[baseCount] : null;
+        for (int i = 0; i < baseCount; i++, offset += 8) bases[i] = file.getLong(offset);
+        return new JsonSidecar(mapped, symbols, symbolIndex, escapes, bases);
+    }
+
+    /**
+     * Returns the CRC32C of the bytes of the source of a reader.
+     */
+    private static int sourceChecksum(JsonReader reader) {
+        CRC32C checksum = new CRC32C();
+        if (reader.array != null) {
+            checksum.update(reader.array, 0, (int) reader.length);
+        } else if (reader.segments == null) {
+            checksum.update(reader.bytes.duplicate().position(reader.start).limit(reader.start + (int) reader.length));
+        } else {
+            for (ByteBuffer segment : reader.segments) checksum.update(segment.duplicate().clear());
+        }
+        return (int) checksum.getValue();
+    }
+}
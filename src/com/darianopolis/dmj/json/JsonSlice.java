@@ -0,0 +1,67 @@
+package com.darianopolis.dmj.json;
+
+/**
+ * A view of the contents of an escape free json string, read directly from the source of a JsonReader.
+ * For byte sources this is only used for strings that are entirely ASCII, so that chars and bytes coincide.
+ *
+ * hashCode() matches String.hashCode() for the same contents, and slices are equal to other slices with the
+ *   same contents. To compare with any other CharSequence use contentEquals, as String.equals does not accept
+ *   a slice.
+ * A slice is only valid for as long as its reader has not been reset.
+ */
+final class JsonSlice implements CharSequence {
+    private final JsonReader reader;
+    private final long start;
+    private final int length;
+    private int hash;
+
+    JsonSlice(JsonReader reader, long start, int length) {
+        this.reader = reader;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index "+ index +" out of bounds for length "+ length);
+        return reader.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length || from > to) throw new IndexOutOfBoundsException("Range ["+ from +", "+ to +") out of bounds for length "+ length);
+        return new JsonSlice(reader, start + from, to - from);
+    }
+
+    public boolean contentEquals(CharSequence other) {
+        return reader.regionEquals(start, start + length, other);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int i = 0; i < length; i++) h = 31 * h + reader.charAt(start + i);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof JsonSlice)) return false;
+        JsonSlice slice = (JsonSlice) other;
+        return slice.length == length && contentEquals(slice);
+    }
+
+    @Override
+    public String toString() {
+        return reader.substring(start, start + length);
+    }
+}
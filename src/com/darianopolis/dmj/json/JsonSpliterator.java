@@ -0,0 +1,76 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the elements of an array or the values of an object, see Json.stream().
+ *
+ * A range of element numbers is split in half on the element or key index of the container, which already holds
+ *   the symbol preceding every element, so splitting copies nothing and costs the same for any size of container.
+ * Elements are handed out as pointers of the same kind as the container, so the elements of a shared value are
+ *   themselves shared values.
+ */
+final class JsonSpliterator implements Spliterator<Json> {
+    private final JsonPointer container;
+    /** Exactly one of elements and keys is set, depending on whether the container is an array or an object */
+    private final JsonElements elements;
+    private final JsonKeys keys;
+    private int from;
+    private final int to;
+
+    JsonSpliterator(JsonPointer container, JsonElements elements, JsonKeys keys, int from, int to) {
+        this.container = container;
+        this.elements = elements;
+        this.keys = keys;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Json> action) {
+        if (from >= to) return false;
+        int symbol = (keys != null) ? keys.binding(from) : elements.get(from);
+        from++;
+        action.accept(container.at(symbol));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Json> action) {
+        if (from >= to) return;
+        if (keys != null) {
+            for (; from < to; from++) action.accept(container.at(keys.binding(from)));
+            return;
+        }
+
+//        Walk from element to element rather than looking each one up, as sparse element indexes skip to reach most elements
+        JsonReader reader = container.reader;
+        int element = elements.get(from);
+        while (true) {
+            action.accept(container.at(element));
+            if (++from >= to) return;
+            element = reader.skipBrackets(reader.next(element));
+            if (reader.getChar(element + 1) == ':') element++;
+        }
+    }
+
+    @Override
+    public Spliterator<Json> trySplit() {
+        int middle = (from + to) >>> 1;
+        if (middle <= from) return null;
+        Spliterator<Json> prefix = new JsonSpliterator(container, elements, keys, from, middle);
+        from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -3,53 +3,48 @@ package com.darianopolis.dmj.json;
 import java.util.Iterator;
 
 public class JsonUtil {
-    @SuppressWarnings("Duplicates")
-    static String decode(String source) {
+    /**
+     * Resolves the escape sequences within the contents of a json string, excluding its quotes.
+     * Any escaped character other than b f n r t and u stands for itself.
+     */
+    static String unescape(String source) {
+        int first = source.indexOf('\\');
+        if (first < 0) return source;
 
-        StringBuilder output = new StringBuilder();
-        boolean escape = false;
-        char quotes = '\u0000';
-        char[] chars = source.toCharArray();
-        int end = source.length();
-        for (int i = 0; i < end; i++) {
-            char c = chars[i];
-            if (escape) {
-                switch (c) {
-                    case 'b': output.append('\b'); break;
-                    case 'f': output.append('\f'); break;
-                    case 'n': output.append('\n'); break;
-                    case 'r': output.append('\r'); break;
-                    case 't': output.append('\t'); break;
-                    case 'u': {
-                        StringBuilder control = new StringBuilder();
-                        for (int j = i + 1; j < i + 5; j++) {
-                            if (j >= chars.length) throw new RuntimeException("Illegal unicode sequence");
-                            char c2 = Character.toLowerCase(chars[j]);
-                            if (Character.isDigit(c2) || (c2 >= 'a' && c2 <= 'f')) {
-                                control.append(c2);
-                            } else {
-                                throw new RuntimeException("Illegal unicode sequence");
-                            }
-                        }
-                        output.append((char)Integer.parseInt(control.toString(), 16));
-                        i += 4;
-                        break;
+        char[] output = new char[source.length()];
+        source.getChars(0, first, output, 0);
+        int length = first;
+        for (int i = first, end = source.length(); i < end; i++) {
+            char c = source.charAt(i);
+            if (c != '\\' || ++i == end) {
+                output[length++] = c;
+                continue;
+            }
+
+            c = source.charAt(i);
+            switch (c) {
+                case 'b': c = '\b'; break;
+                case 'f': c = '\f'; break;
+                case 'n': c = '\n'; break;
+                case 'r': c = '\r'; break;
+                case 't': c = '\t'; break;
+                case 'u': {
+                    if (i + 4 >= end) throw new RuntimeException("Illegal unicode sequence");
+                    int value = 0;
+                    for (int j = i + 1; j < i + 5; j++) {
+                        char d = source.charAt(j);
+                        int digit = (d < 128) ? Character.digit(d, 16) : -1;
+                        if (digit < 0) throw new RuntimeException("Illegal unicode sequence");
+                        value = (value << 4) | digit;
                     }
-                    default: output.append(c);
-                }
-            } else if (c != '\\') {
-                if (quotes == '\u0000') {
-                    if (c == '"' || c == '\'') quotes = c;
-                    else if (!Character.isWhitespace(c)) output.append(c);
-                } else {
-                    if (c == quotes) quotes = '\u0000';
-                    else output.append(c);
+                    c = (char) value;
+                    i += 4;
+                    break;
                 }
             }
-
-            escape = (c == '\\') && !escape;
+            output[length++] = c;
         }
-        return output.toString();
+        return new String(output, 0, length);
     }
 
 //    static Iterator EMPTY_ITERATOR = new Iterator() {
@@ -0,0 +1,304 @@
+package com.darianopolis.dmj.json;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Checks that a json document is well formed without indexing it, for callers that only need a yes or no answer,
+ *   such as a gateway checking a request body before forwarding it untouched.
+ *
+ * A document is fed as any number of chunks of UTF-8 through update(..), from byte arrays or ByteBuffers, and ended
+ *   with finish(). Every bit of state is kept across chunks, so that a chunk may end anywhere, including within a
+ *   string, an escape or a number. The grammar is the one checked by strict indexing, see JsonGrammar, with the
+ *   same one bit per depth stack of whether each open structure is an object. Memory is constant but for that stack,
+ *   which only grows past 4096 levels of nesting, and nothing is allocated and no exception thrown while validating.
+ *
+ * The first error stops validation: every later update(..) returns false, and errorOffset() is the offset of the
+ *   offending byte from the start of the document, or the length of the document if it ended too early.
+ *   errorMessage() describes the error on request. A validator is reused for the next document with reset().
+ *
+ * The contents of strings are skipped 8 bytes at a time up to the next quote, backslash or control character, as
+ *   are runs of digits within numbers, see JsonWords, and every other byte goes through the tables of JsonGrammar
+ *   once. As with strict indexing, the UTF-8 encoding of strings is not checked.
+ */
+public final class JsonValidator {
+    /*
+     * Kinds of error, for errorMessage()
+     */
+    private static final int STRUCTURE = 1;
+    private static final int ATOM = 2;
+    private static final int STRING = 3;
+
+    private long[] kinds = new long[64];
+    private int depth;
+    private int grammar;
+    private int atom;
+    private int hex;
+    private boolean inString;
+    private boolean escape;
+    private long consumed;
+
+    private long errorOffset;
+    private int errorKind;
+    private int errorByte;
+    private int errorState;
+
+    private byte[] array;
+    private ByteBuffer buffer;
+
+    public JsonValidator() {
+        reset();
+    }
+
+    /**
+     * Returns whether bytes is a single well formed json document.
+     */
+    public static boolean validate(byte[] bytes) {
+        JsonValidator validator = new JsonValidator();
+        return validator.update(bytes) && validator.finish();
+    }
+
+    /**
+     * Clears all state, ready to validate a new document.
+     */
+    public JsonValidator reset() {
+        depth = 0;
+        grammar = JsonGrammar.VALUE;
+        atom = JsonGrammar.NONE;
+        hex = 0;
+        inString = false;
+        escape = false;
+        consumed = 0;
+        errorOffset = -1;
+        errorKind = 0;
+        return this;
+    }
+
+    public boolean update(byte[] bytes) {
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Validates the next chunk of the document.
+     * @return false if the document is known to be invalid, by this or any earlier chunk
+     */
+    public boolean update(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length || offset + length < 0) {
+            throw new IndexOutOfBoundsException("Chunk ["+ offset +", "+ offset +" + "+ length +") of "+ bytes.length);
+        }
+        array = bytes;
+        try {
+            return validate(offset, offset + length);
+        } finally {
+            array = null;
+        }
+    }
+
+    /**
+     * Validates the remaining bytes of a buffer as the next chunk of the document, moving its position to its limit.
+     * @return false if the document is known to be invalid, by this or any earlier chunk
+     */
+    public boolean update(ByteBuffer chunk) {
+        int from = chunk.position(), to = chunk.limit();
+        boolean valid;
+        if (chunk.hasArray()) {
+            valid = update(chunk.array(), chunk.arrayOffset() + from, to - from);
+        } else {
+            buffer = chunk;
+            try {
+                valid = validate(from, to);
+            } finally {
+                buffer = null;
+            }
+        }
+        chunk.position(to);
+        return valid;
+    }
+
+    /**
+     * Ends the document, checking that it is complete.
+     * @return whether the document as a whole is valid
+     */
+    public boolean finish() {
+        if (errorOffset >= 0) return false;
+        if (inString) return fail(STRING, consumed, -1, grammar);
+        if (atom != JsonGrammar.NONE) {
+            if (!JsonGrammar.accepts(atom)) return fail(ATOM, consumed, -1, grammar);
+            atom = JsonGrammar.NONE;
+        }
+        if (grammar != JsonGrammar.AFTER) return fail(STRUCTURE, consumed, -1, grammar);
+        return true;
+    }
+
+    /**
+     * Returns false once any error has been found.
+     */
+    public boolean isValid() {
+        return errorOffset < 0;
+    }
+
+    /**
+     * Returns the offset of the first error from the start of the document, or -1 if none has been found.
+     */
+    public long errorOffset() {
+        return errorOffset;
+    }
+
+    /**
+     * Describes the first error, in the same terms as strict indexing, or returns null if none has been found.
+     */
+    public String errorMessage() {
+        if (errorOffset < 0) return null;
+        String found = (errorByte < 0) ? "EOF" : JsonGrammar.describe(errorByte);
+        switch (errorKind) {
+            case ATOM:
+                return "Invalid number or literal at "+ errorOffset;
+            case STRING:
+                if (errorByte < 0) return "Expected \", found EOF";
+                return "Invalid "+ found +" in string at "+ errorOffset;
+            default:
+                if (errorByte < 0) return "Expected "+ JsonGrammar.expected(errorState) +", found EOF";
+                return "Unexpected "+ found +" at "+ errorOffset +", expected "+ JsonGrammar.expected(errorState);
+        }
+    }
+
+    /**
+     * Returns the depth of the structures that are open at the end of the input so far.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    private boolean fail(int kind, long offset, int c, int state) {
+        errorKind = kind;
+        errorOffset = offset;
+        errorByte = c;
+        errorState = state;
+        return false;
+    }
+
+    /**
+     * Validates the bytes [from, to) of the current array or buffer.
+     *
+     * Strings and atoms each have an inner loop that runs to their end, so that the outer loop only sees whitespace
+     *   and the first byte of every token. Both skip 8 bytes at a time where they can: strings up to the next byte
+     *   that is not plain content, and the digits of integers, fractions and exponents.
+     */
+    private boolean validate(int from, int to) {
+        if (errorOffset >= 0) return false;
+        byte[] array = this.array;
+        ByteBuffer buffer = this.buffer;
+        boolean reverse = (array == null) && buffer.order() == ByteOrder.BIG_ENDIAN;
+        long base = consumed - from;
+        long[] kinds = this.kinds;
+        int depth = this.depth, grammar = this.grammar, atom = this.atom, hex = this.hex;
+        boolean inString = this.inString, escape = this.escape;
+
+        int i = from;
+        while (i < to) {
+            if (inString) {
+                while (i < to) {
+                    if (hex == 0 && !escape) {
+                        for (; i + 8 <= to; i += 8) {
+                            long stops = JsonWords.stops(JsonWords.word(array, buffer, i, reverse));
+                            if (stops != 0) {
+                                i += Long.numberOfTrailingZeros(stops) >>> 3;
+                                break;
+                            }
+                        }
+                        if (i == to) break;
+                    }
+
+                    int c = ((array != null) ? array[i] : buffer.get(i)) & 0xFF;
+                    if (hex > 0) {
+                        if (!JsonGrammar.isHex(c)) return fail(STRING, base + i, c, grammar);
+                        hex--;
+                    } else if (escape) {
+                        if (!JsonGrammar.isEscape(c)) return fail(STRING, base + i, c, grammar);
+                        if (c == 'u') hex = 4;
+                        escape = false;
+                    } else if (c == '"') {
+                        inString = false;
+                        i++;
+                        break;
+                    } else if (c == '\\') {
+                        escape = true;
+                    } else if (c < ' ') {
+                        return fail(STRING, base + i, c, grammar);
+                    }
+                    i++;
+                }
+                continue;
+            }
+
+            if (atom != JsonGrammar.NONE) {
+                while (i < to) {
+                    if (JsonGrammar.repeatsDigits(atom)) {
+                        for (; i + 8 <= to; i += 8) {
+                            long others = JsonWords.others(JsonWords.word(array, buffer, i, reverse));
+                            if (others != 0) {
+                                i += Long.numberOfTrailingZeros(others) >>> 3;
+                                break;
+                            }
+                        }
+                        if (i == to) break;
+                    }
+
+                    int c = ((array != null) ? array[i] : buffer.get(i)) & 0xFF;
+                    if (JsonGrammar.token(c) != JsonGrammar.ATOM) {
+                        if (!JsonGrammar.accepts(atom)) return fail(ATOM, base + i, c, grammar);
+                        atom = JsonGrammar.NONE;
+                        break;
+                    }
+                    if ((atom = JsonGrammar.step(atom, c)) == JsonGrammar.NONE) return fail(ATOM, base + i, c, grammar);
+                    i++;
+                }
+                continue;
+            }
+
+            int c = ((array != null) ? array[i] : buffer.get(i)) & 0xFF;
+            int token = JsonGrammar.token(c);
+            if (token == JsonGrammar.WHITESPACE) {
+                i++;
+                continue;
+            }
+
+            int next = JsonGrammar.next(grammar, token);
+            if (next == JsonGrammar.ERROR) return fail(STRUCTURE, base + i, c, grammar);
+            switch (token) {
+                case JsonGrammar.OPEN_OBJECT:
+                case JsonGrammar.OPEN_ARRAY:
+                    if (depth >>> 6 == kinds.length) this.kinds = kinds = Arrays.copyOf(kinds, kinds.length * 2);
+                    if (token == JsonGrammar.OPEN_OBJECT) kinds[depth >>> 6] |= 1L << depth;
+                    else kinds[depth >>> 6] &= ~(1L << depth);
+                    depth++;
+                    break;
+                case JsonGrammar.CLOSE_OBJECT:
+                case JsonGrammar.CLOSE_ARRAY:
+                    depth--;
+                    next = JsonGrammar.closed(depth, depth > 0 && (kinds[(depth - 1) >>> 6] >>> (depth - 1) & 1) != 0);
+                    break;
+                case JsonGrammar.STRING:
+                    inString = true;
+                    break;
+                case JsonGrammar.ATOM:
+                    if ((atom = JsonGrammar.step(JsonGrammar.START, c)) == JsonGrammar.NONE) {
+                        return fail(ATOM, base + i, c, grammar);
+                    }
+                    break;
+            }
+            grammar = next;
+            i++;
+        }
+
+        this.depth = depth;
+        this.grammar = grammar;
+        this.atom = atom;
+        this.hex = hex;
+        this.inString = inString;
+        this.escape = escape;
+        consumed = base + to;
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.darianopolis.dmj.json;
+
+/**
+ * An immutable pointer to a value of a shared document, see JsonReader.share().
+ *
+ * A JsonValue never moves, so a single value can be read and navigated by any number of threads at once.
+ *   Values found through get(..) are JsonValues in turn. Iterating a value in place through hasNext() would
+ *   move it, and so is not supported. iterator() instead returns a new JsonPointer for every iteration, which
+ *   belongs to the calling thread.
+ *
+ * The element and key indexes of a value are still found lazily on first access. They are immutable once
+ *   built, so a thread either sees no index and finds it through the reader's index cache, or sees a complete one.
+ */
+public final class JsonValue extends JsonPointer {
+    JsonValue(JsonReader reader, int index) {
+        super(reader, index);
+    }
+
+    @Override
+    JsonPointer at(int index) {
+        return new JsonValue(reader, index);
+    }
+
+    @Override
+    JsonPointer moveTo(int index) {
+        throw new UnsupportedOperationException("Shared values cannot be moved");
+    }
+
+    @Override
+    public boolean hasNext() {
+        throw new UnsupportedOperationException("Shared values cannot be iterated in place, use iterator()");
+    }
+}
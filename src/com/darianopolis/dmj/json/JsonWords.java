@@ -0,0 +1,99 @@
+package com.darianopolis.dmj.json;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Word at a time (SWAR, SIMD within a register) helpers shared by the indexing passes of JsonReader and by
+ *   JsonValidator, which look at 8 bytes of a source at once as a little endian long.
+ *
+ * Every comparison works on the low 7 bits of each byte, so that no carry crosses into the next byte, and excludes
+ *   bytes that have the high bit set already. The result is either the high bit of every matching byte, as returned
+ *   by stops() and others(), or gathered into an 8 bit mask with bit i for byte i, as returned by matches() and
+ *   below(). Bounds are given as 0x7F minus the highest byte below them, repeated in every byte, so that adding one
+ *   to the low 7 bits of a byte overflows into its high bit exactly when the byte is not below the bound.
+ */
+final class JsonWords {
+    static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long GATHER = 0x0102040810204080L;
+
+    static final long FOLD_BYTES = 0x2020202020202020L;               // Maps [ to { and ] to }
+    static final long QUOTE_BYTES = 0x2222222222222222L;
+    static final long SINGLE_QUOTE_BYTES = 0x2727272727272727L;
+    static final long BACKSLASH_BYTES = 0x5C5C5C5C5C5C5C5CL;
+    static final long OPEN_BYTES = 0x7B7B7B7B7B7B7B7BL;
+    static final long CLOSE_BYTES = 0x7D7D7D7D7D7D7D7DL;
+    static final long COLON_BYTES = 0x3A3A3A3A3A3A3A3AL;
+    static final long COMMA_BYTES = 0x2C2C2C2C2C2C2C2CL;
+    static final long NEWLINE_BYTES = 0x0A0A0A0A0A0A0A0AL;
+    static final long WHITESPACE_BYTES = 0x5F5F5F5F5F5F5F5FL;         // 0x7F - ' ', see below()
+    static final long CONTROL_BYTES = 0x6060606060606060L;            // 0x7F - 0x1F, see stops()
+    static final long DIGIT_BYTES = 0x3030303030303030L;              // Maps '0'..'9' to 0..9
+    static final long DIGIT_BOUND_BYTES = 0x7676767676767676L;        // 0x7F - 9, see others()
+
+    private JsonWords() {}
+
+    /**
+     * Returns the 8 bytes at index i of a byte array, or of buffer if array is null, as a little endian long.
+     * reverse must be set for a big endian buffer.
+     */
+    static long word(byte[] array, ByteBuffer buffer, int i, boolean reverse) {
+        long word = (array != null) ? (long) LONGS.get(array, i) : buffer.getLong(i);
+        return reverse ? Long.reverseBytes(word) : word;
+    }
+
+    /**
+     * Returns an 8 bit mask of the bytes within word that are equal to the corresponding byte of pattern.
+     */
+    static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        long zeros = ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+        return ((zeros >>> 7) * GATHER) >>> 56;
+    }
+
+    /**
+     * Returns an 8 bit mask of the bytes within word that are below a bound. WHITESPACE_BYTES finds the bytes up to
+     *   ' ', which JsonReader treats as whitespace when finding empty structures.
+     */
+    static long below(long word, long bound) {
+        long below = ~(((word & LOW_BITS) + bound) | word | LOW_BITS);
+        return ((below >>> 7) * GATHER) >>> 56;
+    }
+
+    /**
+     * Returns the high bit of every byte of the word that ends the plain content of a string: quotes, backslashes and
+     *   control characters.
+     */
+    static long stops(long word) {
+        long quote = word ^ QUOTE_BYTES;
+        long backslash = word ^ BACKSLASH_BYTES;
+        return ~(((quote & LOW_BITS) + LOW_BITS) | quote | LOW_BITS)
+            | ~(((backslash & LOW_BITS) + LOW_BITS) | backslash | LOW_BITS)
+            | ~(((word & LOW_BITS) + CONTROL_BYTES) | word | LOW_BITS);
+    }
+
+    /**
+     * Returns the high bit of every byte of the word that is not a digit.
+     */
+    static long others(long word) {
+        long x = word ^ DIGIT_BYTES;
+        return (((x & LOW_BITS) + DIGIT_BOUND_BYTES) | x) & ~LOW_BITS;
+    }
+
+    /**
+     * Carry-less prefix xor, each bit of the result is the xor of all bits at or below it in the mask.
+     * Applied to a quote mask this sets every bit from an opening quote up to (but excluding) its closing quote.
+     */
+    static long prefixXor(long mask) {
+        mask ^= mask << 1;
+        mask ^= mask << 2;
+        mask ^= mask << 4;
+        mask ^= mask << 8;
+        mask ^= mask << 16;
+        mask ^= mask << 32;
+        return mask;
+    }
+}
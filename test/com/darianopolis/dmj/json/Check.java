@@ -0,0 +1,46 @@
+package com.darianopolis.dmj.json;
+
+import java.util.Objects;
+
+/**
+ * Assertions for the tests run by JsonTests.
+ */
+final class Check {
+    private Check() {}
+
+    static void isTrue(boolean condition, String what) {
+        if (!condition) throw new AssertionError(what);
+    }
+
+    static void equal(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what +"\n  expected: "+ expected +"\n  actual:   "+ actual);
+        }
+    }
+
+    /**
+     * Returns the message of the exception of the given type thrown by a task, failing if it throws none.
+     */
+    static String throwsException(Class<? extends Throwable> type, Runnable task, String what) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) return e.getMessage();
+            throw new AssertionError(what +"\n  expected "+ type.getSimpleName() +", threw "+ e, e);
+        }
+        throw new AssertionError(what +"\n  expected "+ type.getSimpleName() +", completed normally");
+    }
+
+    /**
+     * Shortens a document for a failure message, with control characters made visible.
+     */
+    static String show(String document) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < document.length() && builder.length() < 400; i++) {
+            char c = document.charAt(i);
+            if (c < ' ') builder.append(String.format("\\u%04x", (int) c));
+            else builder.append(c);
+        }
+        return (builder.length() < 400) ? builder.toString() : builder.append("...").toString();
+    }
+}
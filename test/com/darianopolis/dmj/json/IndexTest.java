@@ -0,0 +1,325 @@
+package com.darianopolis.dmj.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Checks that every way of indexing a document produces the same symbols and escape bits: chars, byte arrays,
+ *   heap and direct buffers of either byte order, the scalar and vectorized passes, parallel and incremental
+ *   indexing, and the compact, off heap and sidecar encodings of a finished index. The scalar pass over a byte
+ *   array is the reference. Input that cannot be indexed must fail on every path alike.
+ */
+final class IndexTest {
+    private IndexTest() {}
+
+    static void testSmallDocuments() {
+        JsonSamples samples = new JsonSamples(1);
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            documents.add(samples.document(i % 2 == 0));
+            documents.add(samples.lenient());
+        }
+        documents.addAll(JsonSamples.EDGE_CASES);
+        for (String document : documents) checkPaths(document, samples.random());
+    }
+
+    /**
+     * Documents large enough to be split into several chunks for parallel indexing, with chunk boundaries falling
+     *   inside strings of both kinds of quote and within runs of backslashes.
+     */
+    static void testParallelDocuments() {
+        JsonSamples samples = new JsonSamples(2);
+        for (int i = 0; i < 4; i++) {
+            StringBuilder builder = new StringBuilder("[");
+            while (builder.length() < (3 << 20) + i * 777_777) {
+                if (builder.length() > 1) builder.append(',');
+                switch (samples.random().nextInt(4)) {
+                    case 0: builder.append("'it\\'s \"quoted\" [ { \\\\'"); break;
+                    case 1: builder.append("\"\\\\\\\\\\\"").append(samples.lenient().replaceAll("[\"\\\\]", "")).append('"'); break;
+                    default: builder.append(samples.document(false));
+                }
+            }
+            String document = builder.append(']').toString();
+            byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+            String expected = index(bytes, false, reader -> reader.reset(bytes));
+            Check.isTrue(!expected.startsWith("!"), "document "+ i +" is indexed "+ expected);
+            Check.equal(expected, index(bytes, true, reader -> {
+                JsonReader.parallelThreshold = Long.MAX_VALUE;
+                return reader.reset(bytes);
+            }), "vectorized index of document "+ i);
+            if (i == 0 && System.getProperty("dmj.json.compactThreshold") == null) {
+                Check.isTrue(JsonReader.read(bytes).reader.symbols != null, "symbols kept without a compactThreshold");
+            }
+            for (boolean vectorized : new boolean[] {false, true}) {
+                String parallel = index(bytes, vectorized, reader -> {
+                    JsonReader.parallelThreshold = 0;
+                    return reader.reset(bytes);
+                });
+                Check.equal(expected, parallel, "parallel index of document "+ i +", vectorized "+ vectorized);
+            }
+        }
+    }
+
+    /**
+     * Arrays of more than 65536 elements only index every 16th element, and reach the others by skipping over their
+     *   predecessors, which may be arrays, objects or strings holding brackets themselves.
+     */
+    static void testSparseElements() {
+        Random random = new Random(4);
+        String[] values = {"1", "\"[{\"", "[1, [2, {\"a\": [3]}]]", "{\"b\": {}, \"c\": \"}\"}", "[]", "null"};
+        for (int size : new int[] {65_535, 65_536, 65_537, 100_003}) {
+            List<String> expected = new ArrayList<>();
+            StringBuilder builder = new StringBuilder("{\"values\": [");
+            for (int i = 0; i < size; i++) {
+                String value = (random.nextInt(3) == 0) ? values[random.nextInt(values.length)] : Integer.toString(i);
+                expected.add(value);
+                builder.append((i > 0) ? ", " : "").append(value);
+            }
+            String document = builder.append("]}").toString();
+            for (Json root : new Json[] {JsonReader.read(document), JsonReader.read(document.getBytes(StandardCharsets.UTF_8))}) {
+                Json array = root.get("values");
+                String what = " of "+ size +" elements";
+                Check.equal(size, array.size(), "size"+ what);
+                List<Integer> indexes = new ArrayList<>(List.of(0, 1, 15, 16, 17, 65_520, size / 2, size - 2, size - 1));
+                for (int n = 0; n < 5000; n++) indexes.add(random.nextInt(size));
+                for (int i : indexes) Check.equal(expected.get(i), array.get(i).asRaw().trim(), "element "+ i + what);
+                for (int i : new int[] {-1, size, size + 1, size + 16, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+                    Check.isTrue(array.get(i) == JsonEmpty.EMPTY, "element "+ i + what);
+                }
+
+                JsonPointer pointer = (JsonPointer) array;
+                JsonElements elements = pointer.reader.elements(pointer.reader.next(pointer.index));
+                Check.equal(size, elements.size(), "size of the element index"+ what);
+                Check.equal(-1, elements.get(size), "symbol past the end"+ what);
+                Check.equal(-1, elements.get(-1), "symbol before the start"+ what);
+                int i = 0;
+                for (Json value : array) {
+                    if (i % 1000 == 0 || i >= size - 20) {
+                        Check.equal(elements.get(i), ((JsonPointer) value).index, "symbol of element "+ i + what);
+                    }
+                    i++;
+                }
+                Check.equal(size, i, "elements iterated"+ what);
+            }
+        }
+    }
+
+    /**
+     * Random lookups and insertions of symbols that crowd into few sets must find exactly the entries that a model of
+     *   two way sets with least recently used replacement holds.
+     */
+    static void testIndexCacheEviction() {
+        Random random = new Random(5);
+        for (int capacity : new int[] {1, 2, 3, 8, 64}) {
+            JsonIndexCache cache = new JsonIndexCache(capacity);
+            Map<Integer, List<Integer>> model = new HashMap<>();
+            for (int n = 0; n < 100_000; n++) {
+                int symbol = random.nextInt(4 * capacity + 4);
+                List<Integer> set = model.computeIfAbsent(cache.set(symbol), k -> new ArrayList<>());
+                Object index = cache.get(symbol);
+                String what = "symbol "+ symbol +" of a cache of "+ capacity +" after "+ n +" operations";
+                if (set.contains(symbol)) {
+                    Check.equal("index of "+ symbol, index, what);
+                    set.remove((Integer) symbol);
+                    set.add(symbol);
+                } else {
+                    Check.equal(null, index, what);
+                    if (random.nextBoolean()) {
+                        cache.put(symbol, "index of "+ symbol);
+                        if (set.size() == 2) set.remove(0);
+                        set.add(symbol);
+                    }
+                }
+            }
+            cache.clear();
+            for (int symbol = 0; symbol < 4 * capacity + 4; symbol++) Check.equal(null, cache.get(symbol), "cleared");
+        }
+    }
+
+    /**
+     * Containers that are evicted from a cache of a single set are indexed again, and reached correctly, however
+     *   their lookups interleave.
+     */
+    static void testIndexCacheReuse() {
+        Random random = new Random(6);
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 5; i++) {
+            builder.append((i > 0) ? ", " : "").append('{');
+            for (int k = 0; k < 20; k++) {
+                builder.append((k > 0) ? ", " : "").append("\"k").append(k).append("\": [").append(i).append(", ")
+                    .append(k).append(']');
+            }
+            builder.append('}');
+        }
+        String document = builder.append(']').toString();
+        JsonReader.indexCacheSize = 2;
+        JsonReader.predictShapes = false;
+        JsonPointer root = JsonReader.read(document);
+        JsonReader reader = root.reader;
+        JsonKeys[] last = new JsonKeys[5];
+        int reindexed = 0;
+        for (int n = 0; n < 2000; n++) {
+            int i = random.nextInt(5), k = random.nextInt(20);
+            Json value = root.get(i).get("k"+ k);
+            Check.equal(i, value.get(0).asInteger(), "object of k"+ k +" of object "+ i);
+            Check.equal(k, value.get(1).asInteger(), "key of k"+ k +" of object "+ i);
+
+            int start = reader.next(((JsonPointer) root.get(i)).index);
+            JsonKeys keys = reader.keys(start);
+            Check.isTrue(keys == reader.keys(start), "cached key index of object "+ i);
+            Check.equal(20, keys.size(), "size of the key index of object "+ i);
+            if (last[i] != null && keys != last[i]) {
+                Check.equal(last[i].get("k"+ k), keys.get("k"+ k), "binding of k"+ k +" of reindexed object "+ i);
+                reindexed++;
+            }
+            last[i] = keys;
+        }
+        Check.isTrue(reindexed > 0, "objects reindexed after eviction");
+    }
+
+    private static void checkPaths(String document, Random random) {
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+        String expected = index(bytes, false, reader -> reader.reset(bytes));
+        String what = "of "+ Check.show(document);
+
+        if (bytes.length == document.length()) {
+            Check.equal(expected, index(bytes, false, reader -> reader.reset(document)), "chars index "+ what);
+        }
+        Check.equal(expected, index(bytes, true, reader -> reader.reset(bytes)), "vectorized index "+ what);
+        for (boolean vectorized : new boolean[] {false, true}) {
+            Check.equal(expected, index(bytes, vectorized, reader -> {
+                ByteBuffer heap = ByteBuffer.allocate(bytes.length + 3);
+                heap.position(3);
+                heap.put(bytes).position(3);
+                return reader.reset(heap);
+            }), "heap buffer index "+ what);
+            for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                Check.equal(expected, index(bytes, vectorized, reader -> {
+                    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).order(order);
+                    return reader.reset(direct.put(bytes).flip());
+                }), "direct "+ order +" buffer index "+ what);
+            }
+            Check.equal(expected, index(bytes, vectorized, reader -> {
+                JsonReader.parallelThreshold = 0;
+                return reader.reset(bytes);
+            }), "parallel index "+ what);
+            Check.equal(expected, index(bytes, vectorized, reader -> {
+                JsonPointer root = reader.begin();
+                for (int i = 0; i < bytes.length; ) {
+                    int count = Math.min(bytes.length - i, 1 + random.nextInt(random.nextBoolean() ? 8 : 200));
+                    reader.append(bytes, i, count);
+                    i += count;
+                }
+                reader.finish();
+                return root;
+            }), "incremental index "+ what);
+        }
+        Check.equal(expected, index(bytes, true, reader -> readStream(bytes)), "stream index "+ what);
+
+        if (expected.startsWith("!")) return;
+        Check.equal(expected, index(bytes, true, reader -> {
+            JsonReader.compactThreshold = 0;
+            JsonPointer root = JsonReader.read(bytes);
+            Check.isTrue(root.reader.symbols == null, "index is compacted "+ what);
+            return root;
+        }), "compact index "+ what);
+        Check.equal(expected, index(bytes, true, reader -> {
+            JsonPointer root = reader.reset(bytes);
+            reader.moveOffHeap();
+            Check.isTrue(reader.isOffHeap(), "index is off heap "+ what);
+            return root;
+        }), "off heap index "+ what);
+    }
+
+    static void testSidecars() throws IOException {
+        JsonSamples samples = new JsonSamples(3);
+        Path directory = Files.createTempDirectory("dmj-json-test");
+        Path path = directory.resolve("document.json"), sidecar = directory.resolve("document.json.idx");
+        try {
+            for (int i = 0; i < 200; i++) {
+                String document = "["+ samples.document(i % 2 == 0) +"]";
+                byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+                Files.write(path, bytes);
+                Files.deleteIfExists(sidecar);
+                JsonReader.compactThreshold = (i % 3 == 0) ? 0 : Long.MAX_VALUE;
+                String expected = index(bytes, false, reader -> reader.reset(bytes));
+                String what = "of "+ Check.show(document);
+
+                JsonPointer written = JsonReader.open(path, sidecar);
+                Check.isTrue(!written.reader.isOffHeap() && Files.exists(sidecar), "sidecar written "+ what);
+                Check.equal(expected, describe(written.reader), "index written alongside sidecar "+ what);
+                JsonPointer mapped = JsonReader.open(path, sidecar);
+                Check.isTrue(mapped.reader.isOffHeap(), "sidecar mapped "+ what);
+                Check.equal(expected, describe(mapped.reader), "sidecar index "+ what);
+                mapped.reader.close();
+
+                byte[] corrupt = Files.readAllBytes(sidecar);
+                corrupt[corrupt.length - 1] ^= 1;
+                Files.write(sidecar, corrupt);
+                JsonPointer reindexed = JsonReader.open(path, sidecar);
+                Check.isTrue(!reindexed.reader.isOffHeap(), "corrupt sidecar ignored "+ what);
+                Check.equal(expected, describe(reindexed.reader), "index replacing corrupt sidecar "+ what);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(sidecar);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static JsonPointer readStream(byte[] bytes) {
+        try {
+            return JsonReader.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Indexes a document with a new reader and returns its index as text, or "!" followed by the message of the
+     *   exception that rejected it.
+     */
+    private static String index(byte[] bytes, boolean vectorized, Function<JsonReader, JsonPointer> read) {
+        boolean wasVectorized = JsonReader.vectorized;
+        long parallelThreshold = JsonReader.parallelThreshold, compactThreshold = JsonReader.compactThreshold;
+        JsonReader.vectorized = vectorized;
+        try {
+            return describe(read.apply(new JsonReader()).reader);
+        } catch (IllegalStateException e) {
+            return "!"+ e.getMessage();
+        } finally {
+            JsonReader.vectorized = wasVectorized;
+            JsonReader.parallelThreshold = parallelThreshold;
+            JsonReader.compactThreshold = compactThreshold;
+        }
+    }
+
+    /**
+     * Returns the symbols of a reader up to and including the zero pad, followed by the symbols whose escape bit
+     *   is set, reading them through symbolAt() so that every encoding is read alike.
+     */
+    static String describe(JsonReader reader) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i <= reader.symbolIndex; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(reader.symbolAt(i));
+        }
+        builder.append("] escapes");
+        for (int i = 0; i <= reader.symbolIndex; i++) {
+            if (reader.hasEscapes(i)) builder.append(' ').append(i);
+        }
+        return builder.toString();
+    }
+}
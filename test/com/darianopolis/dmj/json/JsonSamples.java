@@ -0,0 +1,306 @@
+package com.darianopolis.dmj.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Documents for the tests: random valid json, the same with random mutations, and random lenient input, along with
+ *   an RFC 8259 recursive descent validator to judge them by.
+ */
+final class JsonSamples {
+    /** Hand picked edge cases of the grammar, both valid and invalid */
+    static final List<String> EDGE_CASES = Arrays.asList(
+        "[]", "[ ]", "{ }", " {\"a\" : [ 1 , 2.5e-3 , -0 , true,false,null ] } ", "\"\\u00e9\"", "0", "-0.0e+1",
+        "[1,]", "[,1]", "{\"a\"}", "{\"a\":}", "{\"a\":1,}", "[1 2]", "01", "1.", ".5", "+1", "1e", "-", "tru", "nul",
+        "truex", "[}", "{]", "]", "[", "\"abc", "\"\\x\"", "\"\\u12g4\"", "\"a\tb\"", "[1]x", "[1] [2]", "", " ",
+        "{\"a\":1 \"b\":2}", "[\"a\"\"b\"]", "[1\"a\"]", "[1,\u000b2]", "'a'", "[\"\u007f\"]", "{,}", "{\"a\"::1}",
+        "[-01]", "[1.e5]", "[1e5.5]", "[--1]", "nulll", "[true,]", "[]]", "{}}", "[[]");
+
+    private static final String MUTATIONS = "{}[]:,\"\\ 0129.eE+-tfnulxa\u0001\t";
+    /** Content of strings that is neither letters nor escapes, ASCII first */
+    private static final String[] SYMBOLS = {"{", "}", "[", "]", ":", ",", "'", "\u00e9", "\u4e2d", "\ud83d\ude00"};
+    private static final String LENIENT = "{}[]:,\"'\\\\\\ a\u00e91{}[]:,\"\" ";
+
+    private final Random random;
+
+    JsonSamples(long seed) {
+        random = new Random(seed);
+    }
+
+    Random random() {
+        return random;
+    }
+
+    /**
+     * Returns count valid documents, each followed by a copy with one or two random mutations, which is usually
+     *   but not always invalid. The documents include non ASCII strings unless ascii is set.
+     */
+    List<String> mutated(int count, boolean ascii) {
+        List<String> documents = new ArrayList<>(EDGE_CASES);
+        for (int i = 0; i < count; i++) {
+            String document = document(ascii);
+            documents.add(document);
+            StringBuilder mutated = new StringBuilder(document);
+            for (int k = 1 + random.nextInt(2); k > 0 && mutated.length() > 0; k--) {
+                int at = random.nextInt(mutated.length());
+                char c = MUTATIONS.charAt(random.nextInt(MUTATIONS.length()));
+                switch (random.nextInt(3)) {
+                    case 0: mutated.deleteCharAt(at); break;
+                    case 1: mutated.insert(at, c); break;
+                    default: mutated.setCharAt(at, c);
+                }
+            }
+            documents.add(mutated.toString());
+        }
+        return documents;
+    }
+
+    /**
+     * Returns a random valid document, optionally surrounded by whitespace.
+     */
+    String document(boolean ascii) {
+        String document = value(0, ascii);
+        return (random.nextInt(4) == 0) ? " \n"+ document +"\r\n " : document;
+    }
+
+    /**
+     * Returns random lenient input made of brackets, separators, both kinds of quote and backslashes, of which
+     *   about two thirds are wrapped in an array. Most of it does not pair its brackets.
+     */
+    String lenient() {
+        StringBuilder builder = new StringBuilder();
+        for (int n = random.nextInt(300); n > 0; n--) builder.append(LENIENT.charAt(random.nextInt(LENIENT.length())));
+        String document = builder.toString();
+        if (random.nextInt(3) == 0) return document;
+        return "["+ document.replace("'", "").replace("\\", random.nextBoolean() ? "\\" : "") +"]";
+    }
+
+    private String value(int depth, boolean ascii) {
+        StringBuilder builder = new StringBuilder();
+        switch ((depth > 5) ? 4 + random.nextInt(3) : random.nextInt(8)) {
+            case 0:
+            case 1:
+                builder.append('[');
+                whitespace(builder);
+                for (int i = 0, n = random.nextInt(4); i < n; i++) {
+                    if (i > 0) builder.append(',');
+                    whitespace(builder);
+                    builder.append(value(depth + 1, ascii));
+                    whitespace(builder);
+                }
+                builder.append(']');
+                break;
+            case 2:
+            case 3:
+                builder.append('{');
+                whitespace(builder);
+                for (int i = 0, n = random.nextInt(4); i < n; i++) {
+                    if (i > 0) builder.append(',');
+                    whitespace(builder);
+                    builder.append(string(ascii));
+                    whitespace(builder);
+                    builder.append(':');
+                    whitespace(builder);
+                    builder.append(value(depth + 1, ascii));
+                    whitespace(builder);
+                }
+                builder.append('}');
+                break;
+            case 4:
+                builder.append(string(ascii));
+                break;
+            case 5:
+                builder.append(number());
+                break;
+            case 6:
+                builder.append((new String[] {"true", "false", "null"})[random.nextInt(3)]);
+                break;
+            default:
+                builder.append('[');
+                for (int i = 0, n = 1 + random.nextInt(20); i < n; i++) {
+                    if (i > 0) builder.append(',');
+                    builder.append(random.nextBoolean() ? number() : string(ascii));
+                }
+                builder.append(']');
+        }
+        return builder.toString();
+    }
+
+    private void whitespace(StringBuilder builder) {
+        if (random.nextInt(6) != 0) return;
+        int kinds = (random.nextInt(5) == 0) ? 4 : 1;
+        for (int n = random.nextInt(70); n > 0; n--) builder.append(" \t\n\r".charAt(random.nextInt(kinds)));
+    }
+
+    String number() {
+        StringBuilder builder = new StringBuilder();
+        if (random.nextBoolean()) builder.append('-');
+        if (random.nextInt(4) == 0) {
+            builder.append('0');
+        } else {
+            builder.append(1 + random.nextInt(9));
+            for (int n = random.nextInt(12); n > 0; n--) builder.append(random.nextInt(10));
+        }
+        if (random.nextBoolean()) {
+            builder.append('.');
+            for (int n = 1 + random.nextInt(8); n > 0; n--) builder.append(random.nextInt(10));
+        }
+        if (random.nextInt(4) == 0) {
+            builder.append("eE".charAt(random.nextInt(2)));
+            if (random.nextBoolean()) builder.append("+-".charAt(random.nextInt(2)));
+            builder.append(random.nextInt(300));
+        }
+        return builder.toString();
+    }
+
+    private String string(boolean ascii) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int n = random.nextInt((random.nextInt(5) == 0) ? 120 : 12); n > 0; n--) {
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                builder.append('\\').append("\"\\/bfnrt".charAt(random.nextInt(8)));
+            } else if (kind == 1) {
+                builder.append(String.format(random.nextBoolean() ? "\\u%04x" : "\\u%04X", random.nextInt(65536)));
+            } else if (kind == 2) {
+                builder.append(SYMBOLS[random.nextInt(ascii ? 7 : SYMBOLS.length)]);
+            } else {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /*
+     *  Reference Validator
+     */
+
+    /**
+     * Returns whether a document is a single json value as defined by RFC 8259.
+     */
+    static boolean isValid(String document) {
+        Validator validator = new Validator(document);
+        try {
+            validator.whitespace();
+            validator.value();
+            validator.whitespace();
+            return validator.at == document.length();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static final class Validator {
+        private final String text;
+        private int at;
+
+        Validator(String text) {
+            this.text = text;
+        }
+
+        private char peek() {
+            if (at >= text.length()) throw new IllegalArgumentException("EOF");
+            return text.charAt(at);
+        }
+
+        private char take() {
+            char c = peek();
+            at++;
+            return c;
+        }
+
+        private boolean isDigit() {
+            return at < text.length() && text.charAt(at) >= '0' && text.charAt(at) <= '9';
+        }
+
+        void whitespace() {
+            while (at < text.length() && " \t\n\r".indexOf(text.charAt(at)) >= 0) at++;
+        }
+
+        void value() {
+            char c = peek();
+            if (c == '{') {
+                at++;
+                whitespace();
+                if (peek() == '}') {
+                    at++;
+                    return;
+                }
+                for (;;) {
+                    whitespace();
+                    string();
+                    whitespace();
+                    if (take() != ':') throw new IllegalArgumentException();
+                    whitespace();
+                    value();
+                    whitespace();
+                    c = take();
+                    if (c == '}') return;
+                    if (c != ',') throw new IllegalArgumentException();
+                }
+            } else if (c == '[') {
+                at++;
+                whitespace();
+                if (peek() == ']') {
+                    at++;
+                    return;
+                }
+                for (;;) {
+                    whitespace();
+                    value();
+                    whitespace();
+                    c = take();
+                    if (c == ']') return;
+                    if (c != ',') throw new IllegalArgumentException();
+                }
+            } else if (c == '"') {
+                string();
+            } else if (text.startsWith("true", at) || text.startsWith("null", at)) {
+                at += 4;
+            } else if (text.startsWith("false", at)) {
+                at += 5;
+            } else {
+                number();
+            }
+        }
+
+        private void string() {
+            if (take() != '"') throw new IllegalArgumentException();
+            for (;;) {
+                char c = take();
+                if (c == '"') return;
+                if (c < 0x20) throw new IllegalArgumentException();
+                if (c != '\\') continue;
+                c = take();
+                if ("\"\\/bfnrtu".indexOf(c) < 0) throw new IllegalArgumentException();
+                if (c != 'u') continue;
+                for (int k = 0; k < 4; k++) {
+                    if ("0123456789abcdefABCDEF".indexOf(take()) < 0) throw new IllegalArgumentException();
+                }
+            }
+        }
+
+        private void number() {
+            if (peek() == '-') at++;
+            if (peek() == '0') {
+                at++;
+            } else if (isDigit()) {
+                while (isDigit()) at++;
+            } else {
+                throw new IllegalArgumentException();
+            }
+            if (at < text.length() && text.charAt(at) == '.') {
+                at++;
+                if (!isDigit()) throw new IllegalArgumentException();
+                while (isDigit()) at++;
+            }
+            if (at < text.length() && (text.charAt(at) == 'e' || text.charAt(at) == 'E')) {
+                at++;
+                if (peek() == '+' || peek() == '-') at++;
+                if (!isDigit()) throw new IllegalArgumentException();
+                while (isDigit()) at++;
+            }
+        }
+    }
+}
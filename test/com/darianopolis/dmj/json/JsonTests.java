@@ -0,0 +1,84 @@
+package com.darianopolis.dmj.json;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Runs every test of the library, without any dependency beyond the JDK:
+ *
+ *   javac -d out/test $(find src/com test -name "*.java")
+ *   java -cp out/test com.darianopolis.dmj.json.JsonTests [TestClass ...]
+ *
+ * A test is any static no argument method whose name starts with "test", and fails by throwing. Every test runs
+ *   against fixed random seeds, so that a failure can be reproduced by running its class alone. The static
+ *   configuration of JsonReader is restored after every test.
+ */
+public final class JsonTests {
+    private static final Class<?>[] TESTS = {
+        IndexTest.class,
+        NumbersTest.class,
+        StrictTest.class,
+        NavigationTest.class,
+        ProjectionTest.class,
+        LinesTest.class,
+        StringsTest.class,
+    };
+
+    private static final boolean VECTORIZED = JsonReader.vectorized;
+    private static final long PARALLEL_THRESHOLD = JsonReader.parallelThreshold;
+    private static final int INDEX_CACHE_SIZE = JsonReader.indexCacheSize;
+    private static final boolean PREDICT_SHAPES = JsonReader.predictShapes;
+    private static final boolean STRICT = JsonReader.strict;
+    private static final long COMPACT_THRESHOLD = JsonReader.compactThreshold;
+    private static final boolean TRUST_INDEX_FILES = JsonReader.trustIndexFiles;
+
+    private JsonTests() {}
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        // Parallel indexing is skipped on a single core, so that it would otherwise go untested there
+        if (System.getProperty("java.util.concurrent.ForkJoinPool.common.parallelism") == null) {
+            System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "4");
+        }
+
+        Class<?>[] tests = TESTS;
+        if (args.length > 0) {
+            tests = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) tests[i] = Class.forName(JsonTests.class.getPackageName() +"."+ args[i]);
+        }
+
+        int passed = 0, failed = 0;
+        for (Class<?> test : tests) {
+            for (Method method : test.getDeclaredMethods()) {
+                if (!method.getName().startsWith("test") || !Modifier.isStatic(method.getModifiers())) continue;
+                if (method.getParameterCount() != 0) continue;
+                String name = test.getSimpleName() +"."+ method.getName();
+                long start = System.nanoTime();
+                try {
+                    method.invoke(null);
+                    passed++;
+                    System.out.printf("PASS %s (%d ms)%n", name, (System.nanoTime() - start) / 1_000_000);
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.out.println("FAIL "+ name);
+                    e.getCause().printStackTrace(System.out);
+                } finally {
+                    restoreDefaults();
+                }
+            }
+        }
+
+        System.out.println(passed +" passed, "+ failed +" failed");
+        if (failed > 0) System.exit(1);
+    }
+
+    private static void restoreDefaults() {
+        JsonReader.vectorized = VECTORIZED;
+        JsonReader.parallelThreshold = PARALLEL_THRESHOLD;
+        JsonReader.indexCacheSize = INDEX_CACHE_SIZE;
+        JsonReader.predictShapes = PREDICT_SHAPES;
+        JsonReader.strict = STRICT;
+        JsonReader.compactThreshold = COMPACT_THRESHOLD;
+        JsonReader.trustIndexFiles = TRUST_INDEX_FILES;
+    }
+}
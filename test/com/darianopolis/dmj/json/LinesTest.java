@@ -0,0 +1,188 @@
+package com.darianopolis.dmj.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that readLines(..) finds the same records, or rejects the same record with the same message, whether the
+ *   lines are read from a byte array, a heap or direct buffer or a file, sequentially or in parallel chunks. Lines
+ *   end in LF or CRLF, blank lines are skipped and the last record may end without a newline.
+ */
+final class LinesTest {
+    private static final String[] BLANK = {"", " ", "\r", "\t \r", "   "};
+    private static final Pattern POSITION = Pattern.compile(" at (\\d+)");
+
+    private LinesTest() {}
+
+    static void testRecordsMatchLines() throws IOException {
+        JsonSamples samples = new JsonSamples(41);
+        Random random = samples.random();
+        for (int document = 0; document < 300; document++) {
+            List<String> records = new ArrayList<>();
+            String source = lines(samples, 1 + random.nextInt((document % 100 == 0) ? 20_000 : 30), records);
+            String what = " of "+ Check.show(source);
+            for (Function<byte[], JsonLines> read : paths(document)) {
+                JsonLines lines = read.apply(source.getBytes(StandardCharsets.UTF_8));
+                Check.equal(records.size(), lines.size(), "record count"+ what);
+                for (int i = 0; i < records.size(); i++) {
+                    Json record = lines.get(i);
+                    Check.equal(records.get(i).strip(), record.asRaw().strip(), "record "+ i + what);
+                    String first = records.get(i).strip();
+                    if (records.size() < 100 && (first.startsWith("[") || first.startsWith("{"))) {
+                        Check.equal(JsonReader.read(first).size(), record.size(), "size of record "+ i + what);
+                    }
+                }
+                Check.isTrue(lines.get(-1) == JsonEmpty.EMPTY && lines.get(records.size()) == JsonEmpty.EMPTY,
+                    "records out of range"+ what);
+
+                List<String> expected = records.stream().map(String::strip).collect(Collectors.toList());
+                List<String> iterated = new ArrayList<>();
+                Iterator<Json> iterator = lines.iterator();
+                while (iterator.hasNext()) iterated.add(iterator.next().asRaw().strip());
+                Check.equal(expected, iterated, "iterated records"+ what);
+                Check.throwsException(NoSuchElementException.class, iterator::next, "iteration past the end"+ what);
+                Check.equal(expected, lines.stream().map(record -> record.asRaw().strip()).collect(Collectors.toList()),
+                    "streamed records"+ what);
+                Check.equal(expected, lines.parallelStream().map(record -> record.asRaw().strip())
+                    .collect(Collectors.toList()), "parallel streamed records"+ what);
+            }
+            if (document % 50 == 0) {
+                Path path = Files.createTempFile("dmj-json-test", ".jsonl");
+                try {
+                    Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+                    JsonLines lines = JsonReader.openLines(path);
+                    Check.equal(records.stream().map(String::strip).collect(Collectors.toList()),
+                        lines.stream().map(record -> record.asRaw().strip()).collect(Collectors.toList()),
+                        "records of a file"+ what);
+                } finally {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    static void testEdgeCases() {
+        Check.equal(0, JsonReader.readLines(new byte[0]).size(), "records of nothing");
+        Check.equal(0, JsonReader.readLines("\n\r\n \n\t".getBytes(StandardCharsets.UTF_8)).size(), "records of blanks");
+        JsonLines lines = JsonReader.readLines("{\"a\": 1}\r\n\r\n[2, 3]\n4\n\"x\"\ntrue".getBytes(StandardCharsets.UTF_8));
+        Check.equal(5, lines.size(), "records among blank lines");
+        Check.equal(1, lines.get(0).get("a").asInteger(), "record before CRLF");
+        Check.equal(3, lines.get(1).get(1).asInteger(), "record after a blank line");
+        Check.equal(4, lines.get(2).asInteger(), "number record");
+        Check.equal("x", lines.get(3).asString(), "string record");
+        Check.isTrue(lines.get(4).asBoolean(), "last record without a newline");
+    }
+
+    /**
+     * A malformed record is reported with the position of its error in the whole source, or the end of its line
+     *   where it is left open, and the first of several malformed records is the one reported.
+     */
+    static void testMalformedRecords() {
+        JsonSamples samples = new JsonSamples(42);
+        Random random = samples.random();
+//        Lenient indexing only rejects records that leave a bracket or string open, or close a bracket never opened
+        String[] lenient = {"{\"a\": [1, 2}", "[1, \"abc", "]", "{"};
+        String[] strict = {"{\"a\": [1, 2}", "[1, \"abc", "]", "{", "{\"a\" 1}", "[1 2]", "{\"a\": tru}", "[\"\\x\"]"};
+        for (int document = 0; document < 100; document++) {
+            List<String> records = new ArrayList<>();
+            lines(samples, 1 + random.nextInt((document % 25 == 0) ? 20_000 : 30), records);
+            String[] malformed = (document % 2 == 0) ? lenient : strict;
+            JsonReader.strict = document % 2 != 0;
+            int at = random.nextInt(records.size());
+            StringBuilder builder = new StringBuilder();
+            int lineStart = 0;
+            for (int i = 0; i < records.size(); i++) {
+                if (i == at) {
+                    lineStart = builder.length();
+                    builder.append(malformed[random.nextInt(malformed.length)]).append('\n');
+                    if (random.nextBoolean()) builder.append(malformed[random.nextInt(malformed.length)]).append('\n');
+                }
+                builder.append(records.get(i)).append('\n');
+            }
+            String bad = builder.toString();
+            int lineEnd = bad.indexOf('\n', lineStart);
+            String what = " of line "+ Check.show(bad.substring(lineStart, lineEnd)) +" at "+ lineStart;
+
+            String expected = null;
+            for (Function<byte[], JsonLines> read : paths(document)) {
+                String message = Check.throwsException(IllegalStateException.class,
+                    () -> read.apply(bad.getBytes(StandardCharsets.UTF_8)), "rejection"+ what);
+                if (expected == null) expected = message;
+                Check.equal(expected, message, "message"+ what);
+            }
+            Matcher position = POSITION.matcher(expected);
+            if (expected.startsWith("Incomplete record")) {
+                Check.equal("Incomplete record on the line ending at "+ bytes(bad, lineEnd), expected, "message"+ what);
+            } else if (position.find()) {
+                long offset = Long.parseLong(position.group(1));
+                Check.isTrue(offset >= bytes(bad, lineStart) && offset <= bytes(bad, lineEnd),
+                    "position of "+ expected + what);
+            } else {
+                Check.isTrue(!JsonReader.strict, "position of "+ expected + what);
+            }
+        }
+        JsonReader.strict = false;
+        Check.throwsException(IllegalStateException.class,
+            () -> JsonReader.readLines("[1]\n[2".getBytes(StandardCharsets.UTF_8)), "last record left open");
+    }
+
+    /**
+     * Returns count random records, each on its own line, with blank lines, both kinds of line end and an optional
+     *   final newline, adding each record to records.
+     */
+    private static String lines(JsonSamples samples, int count, List<String> records) {
+        Random random = samples.random();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(5) == 0) builder.append(BLANK[random.nextInt(BLANK.length)]).append('\n');
+            String record = samples.document(random.nextBoolean()).replace('\n', ' ').replace('\r', ' ');
+            records.add(record);
+            builder.append(record);
+            if (i < count - 1 || random.nextBoolean()) builder.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the ways of reading the lines of a byte array, sequentially and in parallel.
+     */
+    private static List<Function<byte[], JsonLines>> paths(int seed) {
+        Random random = new Random(seed);
+        List<Function<byte[], JsonLines>> paths = new ArrayList<>();
+        paths.add(JsonReader::readLines);
+        paths.add(bytes -> {
+            int offset = random.nextInt(8);
+            ByteBuffer heap = ByteBuffer.allocate(bytes.length + offset);
+            heap.position(offset);
+            heap.put(bytes).position(offset);
+            return JsonReader.readLines(heap);
+        });
+        paths.add(bytes -> JsonReader.readLines(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()));
+        paths.add(bytes -> {
+            long parallelThreshold = JsonReader.parallelThreshold;
+            JsonReader.parallelThreshold = 0;
+            try {
+                return JsonReader.readLines(bytes);
+            } finally {
+                JsonReader.parallelThreshold = parallelThreshold;
+            }
+        });
+        return paths;
+    }
+
+    private static int bytes(String source, int chars) {
+        return source.substring(0, chars).getBytes(StandardCharsets.UTF_8).length;
+    }
+}
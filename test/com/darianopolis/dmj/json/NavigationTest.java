@@ -0,0 +1,423 @@
+package com.darianopolis.dmj.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that the different ways of reaching a value agree with each other.
+ */
+final class NavigationTest {
+    private static final String DUPLICATES = "{\"a\": 1, \"b\": {\"c\": 2}, \"a\": 3, \"b\": {\"c\": 4}, \"a\": 5}";
+
+    private NavigationTest() {}
+
+    static void testPathMatchesLastDuplicateKey() {
+        Json root = JsonReader.read(DUPLICATES);
+        Check.equal(root.get("a").asRaw(), JsonPath.compile("/a").find(root).asRaw(), "find of a duplicate key");
+        Check.equal("4", JsonPath.compile("/b/c").find(root).asRaw().trim(), "find through a duplicate key");
+        Check.equal("[ 5]", JsonPath.compile("/a").stream(root).map(Json::asRaw).collect(Collectors.toList()).toString(),
+            "stream of a duplicate key");
+        Check.equal(5L, JsonPath.compile("/*").stream(root).count(), "wildcard over duplicate keys");
+    }
+
+    /**
+     * A path matches nothing below a scalar, whether the scalar is the root or is reached by the path.
+     */
+    static void testPathOverScalars() {
+        String[] scalars = {"5", "\"x\"", "true", "null", " -1.5e3 "};
+        String[] containers = {"{\"a\": 5, \"b\": \"x\"}", "[5, \"x\"]"};
+        for (String document : scalars) checkNoMatch(document, "/a", "/0", "/*", "/a/b", "/0/*");
+        for (String document : containers) checkNoMatch(document, "/a/b", "/a/0", "/b/*", "/0/a", "/1/0", "/*/*");
+    }
+
+    private static void checkNoMatch(String document, String... paths) {
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+        for (Json root : new Json[] {JsonReader.read(document), JsonReader.read(bytes)}) {
+            for (String text : paths) {
+                JsonPath path = JsonPath.compile(text);
+                String what = text +" of "+ Check.show(document);
+                Check.isTrue(path.find(root) == JsonEmpty.EMPTY, "find "+ what);
+                Check.equal(0L, path.stream(root).count(), "stream "+ what);
+                List<Json> matches = new ArrayList<>();
+                path.forEach(root, matches::add);
+                Check.isTrue(matches.isEmpty(), "forEach "+ what);
+            }
+        }
+    }
+
+    /**
+     * Walks random documents with a single JsonCursor, reading every value, and compares the result with iterating
+     *   the same documents through JsonPointer.
+     */
+    static void testCursorMatchesIteration() {
+        JsonSamples samples = new JsonSamples(11);
+        List<String> documents = new ArrayList<>(Arrays.asList(
+            "{}", "[ ]", " { \"a\" : [ ] } ", "[{}, [], {\"a\": {}}, [[]]]", "[5, \"x\", null, true]",
+            "[".repeat(100) +"1"+ "]".repeat(100)));
+//        Scalars are only read within a container, as values at the root of a document are not supported
+        for (int i = 0; i < 2000; i++) documents.add("["+ samples.document(i % 2 == 0) +"]");
+        JsonCursor cursor = new JsonCursor();
+        for (String document : documents) {
+            byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+            for (Json root : new Json[] {JsonReader.read(document), JsonReader.read(bytes)}) {
+                String what = " of "+ Check.show(document);
+                Check.equal(render(root), render(cursor.reset(root)), "cursor walk"+ what);
+                Check.equal(0, cursor.depth(), "depth after the walk"+ what);
+            }
+        }
+    }
+
+    /**
+     * Values that are entered and left before their end, or not entered at all, are skipped over when moving on.
+     */
+    static void testCursorSkipsUnreadValues() {
+        JsonSamples samples = new JsonSamples(12);
+        JsonCursor cursor = new JsonCursor();
+        for (int i = 0; i < 2000; i++) {
+            String document = samples.document(false);
+            Json root = JsonReader.read(document);
+            String what = " of "+ Check.show(document);
+            cursor.reset(root);
+            boolean object = cursor.enterObject();
+            if (!object && !cursor.enterArray()) {
+                Check.isTrue(!cursor.enterObject() && !cursor.enterArray(), "scalar root is not entered"+ what);
+                Check.throwsException(IllegalStateException.class, cursor::nextElement, "next outside a container"+ what);
+                Check.throwsException(IllegalStateException.class, cursor::exit, "exit outside a container"+ what);
+                continue;
+            }
+            List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+            root.stream().forEach(value -> expected.add((object ? value.getKey() +"=" : "") + value.asRaw().trim()));
+            while (object ? cursor.nextField() : cursor.nextElement()) {
+                String key = object ? cursor.fieldName() +"=" : "";
+                Check.isTrue(!object || cursor.fieldNameEquals(cursor.fieldName()), "field name equals itself"+ what);
+                if (!object) {
+                    Check.throwsException(IllegalStateException.class, cursor::fieldName, "field name of an element"+ what);
+                }
+                actual.add(key + cursor.value().asRaw().trim());
+                if (cursor.enterObject() || cursor.enterArray()) {
+                    Check.equal(2, cursor.depth(), "depth within a child"+ what);
+                    if (samples.random().nextBoolean()) cursor.skipValue();
+                    cursor.exit();
+                }
+            }
+            Check.isTrue(!cursor.nextField(), "end of the container stays at its end"+ what);
+            cursor.exit();
+            Check.equal(expected, actual, "children"+ what);
+        }
+    }
+
+    /**
+     * Renders a value through a cursor positioned at it, reading scalars with every method that applies to them.
+     */
+    private static String render(JsonCursor cursor) {
+        StringBuilder builder = new StringBuilder();
+        boolean object = cursor.enterObject();
+        if (object || cursor.enterArray()) {
+            builder.append(object ? '{' : '[');
+            while (cursor.skipValue()) {
+                if (object) builder.append(cursor.fieldName()).append('=');
+                builder.append(render(cursor)).append(',');
+            }
+            cursor.exit();
+            return builder.append(object ? '}' : ']').toString();
+        }
+        String raw = text(cursor.value());
+        if (raw.startsWith("\"")) {
+            String string = cursor.readString();
+            Check.equal(string, cursor.readCharSequence().toString(), "chars of "+ raw);
+            Check.isTrue(cursor.contentEquals(string), "content of "+ raw);
+            return "s:"+ string;
+        }
+        if (raw.equals("true") || raw.equals("false")) return "b:"+ cursor.readBoolean();
+        if (cursor.isNull()) return "null";
+        return "n:"+ cursor.readDouble();
+    }
+
+    private static String render(Json value) {
+        String raw = text(value);
+        if (raw.startsWith("{") || raw.startsWith("[")) {
+            boolean object = raw.startsWith("{");
+            StringBuilder builder = new StringBuilder().append(object ? '{' : '[');
+            for (Json child : value.stream().collect(Collectors.toList())) {
+                if (object) builder.append(child.getKey()).append('=');
+                builder.append(render(child)).append(',');
+            }
+            return builder.append(object ? '}' : ']').toString();
+        }
+        if (raw.startsWith("\"")) return "s:"+ value.asString();
+        if (raw.equals("true") || raw.equals("false")) return "b:"+ value.asBoolean();
+        if (raw.equals("null")) return "null";
+        return "n:"+ value.asDouble();
+    }
+
+    /**
+     * Returns the source of a scalar, or the open bracket of an array or object.
+     */
+    private static String text(Json value) {
+        JsonReader reader = ((JsonPointer) value).reader;
+        int index = ((JsonPointer) value).index, next = reader.next(index);
+        char bracket = reader.getChar(next);
+        if (bracket == '{' || bracket == '[') return String.valueOf(bracket);
+        return reader.getString(index, next).trim();
+    }
+
+    /**
+     * Objects of either side of the linear scan width are looked up by every key they hold and by keys they do not,
+     *   through String and other CharSequence keys. Keys include ones with equal hashes, keys written with escapes and
+     *   keys that occur more than once, of which the last occurrence must be found.
+     */
+    static void testKeyIndex() {
+        String[] colliding = {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB", "", "\u00e9", "\ud83d\ude00", "a\"b", "a/b"};
+        Check.equal("Aa".hashCode(), "BB".hashCode(), "colliding keys");
+        JsonSamples samples = new JsonSamples(14);
+        Random random = samples.random();
+        JsonReader.predictShapes = false;
+        for (int size : new int[] {1, 2, 7, 8, 9, 10, 16, 17, 100, 1000}) {
+            for (int round = 0; round < 10; round++) {
+                Map<String, Integer> expected = new LinkedHashMap<>();
+                List<String> keys = new ArrayList<>();
+                StringBuilder builder = new StringBuilder("{");
+                for (int i = 0; i < size; i++) {
+                    String key = (random.nextInt(3) == 0) ? colliding[random.nextInt(colliding.length)]
+                        : (random.nextInt(4) == 0 && !keys.isEmpty()) ? keys.get(random.nextInt(keys.size())) : "k"+ i;
+                    keys.add(key);
+                    expected.remove(key);
+                    expected.put(key, i);
+                    if (i > 0) builder.append(", ");
+                    builder.append(escape(key, random)).append(": ").append(i);
+                }
+                String document = builder.append('}').toString();
+                byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+                for (JsonPointer root : new JsonPointer[] {JsonReader.read(document), JsonReader.read(bytes)}) {
+                    String what = " of "+ Check.show(document);
+                    JsonKeys index = JsonKeys.of(root.reader, root.reader.next(root.index) + 2);
+                    Check.equal(size, index.size(), "size of the key index"+ what);
+                    for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+                        String key = entry.getKey();
+                        Check.equal(entry.getValue(), root.get(key).asInteger(), "value of "+ key + what);
+                        Check.equal(entry.getValue(), root.get(new StringBuilder(key)).asInteger(),
+                            "value of "+ key +" as a StringBuilder"+ what);
+                        Check.equal(entry.getValue(), new JsonPointer(root.reader, root.index).get(key).asInteger(),
+                            "value of "+ key +" from a new pointer"+ what);
+                        Check.equal(keys.lastIndexOf(key), index.indexOf(key), "index of "+ key + what);
+                    }
+                    for (String key : new String[] {"Ab", "AaA", "k", "k"+ size, "\u00e8", "a\\\"b", "aa"}) {
+                        if (expected.containsKey(key)) continue;
+                        Check.isTrue(root.get(key) == JsonEmpty.EMPTY, "absent "+ key + what);
+                        Check.equal(-1, index.indexOf(new StringBuilder(key)), "index of absent "+ key + what);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a key as a json string, escaping its characters at random, and both or neither half of a surrogate pair.
+     */
+    private static String escape(String key, Random random) {
+        StringBuilder builder = new StringBuilder("\"");
+        boolean escape = false;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!Character.isLowSurrogate(c)) escape = random.nextInt(4) == 0;
+            if (c == '"' || c == '\\') builder.append('\\').append(c);
+            else if (c == '/' && random.nextBoolean()) builder.append("\\/");
+            else if (escape) builder.append(String.format("\\u%04x", (int) c));
+            else builder.append(c);
+        }
+        return builder.append('"').toString();
+    }
+
+    static void testShapePredictionMatchesKeyIndex() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) builder.append(',');
+            builder.append((i % 10 == 9) ? "{\"a\": 1, \"b\": 2, \"a\": "+ i +", \"a\" : -"+ i +"}" : "{\"a\": "+ i +", \"b\": 2}");
+        }
+        String document = builder.append(']').toString();
+        for (boolean predict : new boolean[] {true, false}) {
+            JsonReader.predictShapes = predict;
+            JsonReader reader = new JsonReader();
+            Json root = reader.reset(document);
+            for (int i = 0; i < 100; i++) {
+                int expected = (i % 10 == 9) ? -i : i;
+                Check.equal(expected, root.get(i).get("a").asInteger(), "a of object "+ i +", predicting "+ predict);
+                Check.equal(2, root.get(i).get("b").asInteger(), "b of object "+ i +", predicting "+ predict);
+            }
+            Check.isTrue(!predict || reader.shapeHits() > 100, "predictions hit");
+        }
+    }
+
+    /**
+     * Objects wider than JsonShapes.MAX_KEYS, and objects that already have a key index, are not predicted, however
+     *   far the last duplicate of a key lies from its first occurrence.
+     */
+    static void testShapePredictionOfWideObjects() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"a\": ").append(i);
+            for (int k = 0; k < 2 * JsonShapes.MAX_KEYS; k++) builder.append(", \"k").append(k).append("\": ").append(k);
+            builder.append((i % 2 == 1) ? ", \"a\": -"+ i +"}" : "}");
+        }
+        JsonReader reader = new JsonReader();
+        Json root = reader.reset(builder.append(']').toString());
+        for (int i = 0; i < 10; i++) {
+            Check.equal((i % 2 == 1) ? -i : i, root.get(i).get("a").asInteger(), "a of wide object "+ i);
+            Check.equal(3, root.get(i).get("k3").asInteger(), "k3 of wide object "+ i);
+            Check.equal(3, root.get(i).get("k3").asInteger(), "k3 of wide object "+ i +" through a new pointer");
+        }
+        Check.equal(0L, reader.shapeHits(), "predictions of wide objects");
+    }
+
+    /**
+     * Every container of random documents yields the same values, in the same order, through iteration, stream(),
+     *   parallelStream() and entries(), on String and byte sources.
+     */
+    static void testStreamsMatchIteration() {
+        JsonSamples samples = new JsonSamples(13);
+        List<String> documents = new ArrayList<>(Arrays.asList("[]", "{}", DUPLICATES, wide(20_000, 5_000)));
+        for (int i = 0; i < 1000; i++) documents.add("["+ samples.document(i % 2 == 0) +"]");
+        for (String document : documents) {
+            String what = " of "+ Check.show(document);
+            checkStreams(JsonReader.read(document), what);
+            checkStreams(JsonReader.read(document.getBytes(StandardCharsets.UTF_8)), " of bytes"+ what);
+        }
+
+        JsonReader reader = new JsonReader();
+        reader.reset(wide(10_000, 10_000));
+        Json shared = reader.share();
+        Check.isTrue(shared.get(0).parallelStream().allMatch(value -> value instanceof JsonValue), "shared elements");
+        Check.isTrue(shared.get(1).entries().allMatch(entry -> entry.getValue() instanceof JsonValue), "shared values");
+    }
+
+    private static void checkStreams(Json container, String what) {
+        String text = text(container);
+        if (!text.equals("{") && !text.equals("[")) {
+            Check.equal(0L, container.entries().count(), "entries of a scalar"+ what);
+            return;
+        }
+        boolean object = text.equals("{");
+        List<String> expected = new ArrayList<>();
+        List<Json> children = new ArrayList<>();
+        for (Json value : container) {
+            expected.add((object ? value.getKey() +"=" : "") + value.asRaw());
+            children.add(new JsonPointer(((JsonPointer) value).reader, ((JsonPointer) value).index));
+        }
+        Function<Json, String> describe = value -> (object ? value.getKey() +"=" : "") + value.asRaw();
+        Check.equal(expected, container.stream().map(describe).collect(Collectors.toList()), "stream"+ what);
+        Check.equal(expected, container.parallelStream().map(describe).collect(Collectors.toList()),
+            "parallel stream"+ what);
+        Check.equal(expected.size(), container.size(), "size"+ what);
+        Check.equal(object ? expected : List.of(),
+            container.entries().map(entry -> entry.getKey() +"="+ entry.getValue().asRaw()).collect(Collectors.toList()),
+            "entries"+ what);
+        if (expected.size() > 1000) checkSpliterator(container, expected, describe, what);
+        for (Json child : children) checkStreams(child, what);
+    }
+
+    /**
+     * Splits the spliterator of a container at random into a tree, and checks that the leaves cover it in order.
+     */
+    private static void checkSpliterator(Json container, List<String> expected, Function<Json, String> describe,
+            String what) {
+        Random random = new Random(expected.size());
+        Spliterator<Json> root = container.spliterator();
+        int characteristics = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL
+            | Spliterator.IMMUTABLE;
+        Check.equal(characteristics, root.characteristics() & characteristics, "characteristics"+ what);
+        Check.equal((long) expected.size(), root.estimateSize(), "estimated size"+ what);
+        Check.equal((long) expected.size(), root.getExactSizeIfKnown(), "exact size"+ what);
+
+        List<String> actual = new ArrayList<>();
+        Deque<Spliterator<Json>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Spliterator<Json> spliterator = pending.pop();
+            long size = spliterator.estimateSize();
+            if (size > 1 && random.nextInt(4) != 0) {
+                Spliterator<Json> prefix = spliterator.trySplit();
+                Check.isTrue(prefix != null, "split of "+ size +" elements"+ what);
+                Check.equal(size, prefix.estimateSize() + spliterator.estimateSize(), "sizes of a split"+ what);
+                pending.push(spliterator);
+                pending.push(prefix);
+                continue;
+            }
+            if (size == 1) Check.isTrue(spliterator.trySplit() == null, "split of a single element"+ what);
+            int before = actual.size();
+            while (random.nextBoolean() && spliterator.tryAdvance(value -> actual.add(describe.apply(value)))) {
+                Check.equal(size - (actual.size() - before), spliterator.estimateSize(), "size while advancing"+ what);
+            }
+            spliterator.forEachRemaining(value -> actual.add(describe.apply(value)));
+            Check.equal(size, (long) (actual.size() - before), "elements of a part"+ what);
+            Check.equal(0L, spliterator.estimateSize(), "size of an exhausted part"+ what);
+            Check.isTrue(!spliterator.tryAdvance(value -> actual.add("!")), "advance past the end"+ what);
+        }
+        Check.equal(expected, actual, "elements of the split parts"+ what);
+    }
+
+    /**
+     * Returns an array of count numbers, followed by an object with keys distinct keys of which every one is written
+     *   twice, once with an escape.
+     */
+    private static String wide(int count, int keys) {
+        StringBuilder builder = new StringBuilder("[[");
+        for (int i = 0; i < count; i++) builder.append((i > 0) ? "," : "").append(i);
+        builder.append("], {");
+        for (int i = 0; i < 2 * keys; i++) {
+            builder.append((i > 0) ? ", " : "").append((i < keys) ? "\"k" : "\"\\u006b").append(i % keys).append("\": ").append(i);
+        }
+        return builder.append("}]").toString();
+    }
+
+    /**
+     * Once an off heap document is closed every way into it must fail alike, whether or not an element or key index
+     *   was built for it beforehand.
+     */
+    static void testClosedDocument() {
+        JsonReader reader = new JsonReader();
+        JsonPointer root = reader.reset("{\"list\": [{\"a\": 1}, {\"a\": 2}]}".getBytes(StandardCharsets.UTF_8));
+        reader.moveOffHeap();
+        Json list = root.get("list");
+        Json first = list.get(0);
+        Check.equal(1, first.get("a").asInteger(), "value before closing");
+        reader.close();
+
+        Json fresh = new JsonPointer(reader, -1);
+        Check.throwsException(IllegalStateException.class, () -> root.get("list"), "root by key");
+        Check.throwsException(IllegalStateException.class, () -> fresh.get("list"), "new root by key");
+        Check.throwsException(IllegalStateException.class, () -> list.get(0), "indexed array by element");
+        Check.throwsException(IllegalStateException.class, () -> list.get(-1), "indexed array by negative element");
+        Check.throwsException(IllegalStateException.class, () -> first.get("a"), "indexed object by key");
+        Check.throwsException(IllegalStateException.class, () -> list.size(), "size of indexed array");
+        Check.throwsException(IllegalStateException.class, () -> JsonPath.compile("/list/1/a").find(fresh), "path");
+        Check.throwsException(IllegalStateException.class, first::asRaw, "raw value");
+
+        Check.equal(3, reader.reset("[1, 2, 3]").size(), "size of the next document");
+    }
+
+    static void testPathOverSharedValues() {
+        JsonReader reader = new JsonReader();
+        reader.reset("{\"users\": [{\"name\": \"a\"}, {\"name\": \"b\"}]}");
+        Json root = reader.share();
+        JsonPath path = JsonPath.compile("/users/*/name");
+
+        Check.isTrue(path.find(root) instanceof JsonValue, "find within a shared value is a JsonValue");
+        Check.isTrue(path.stream(root).allMatch(value -> value instanceof JsonValue), "stream of JsonValues");
+        List<Json> matches = new ArrayList<>();
+        path.forEach(root, matches::add);
+        Check.equal("[a, b]", matches.stream().map(Json::asString).collect(Collectors.toList()).toString(),
+            "forEach within a shared value");
+        Check.isTrue(matches.get(0) != matches.get(1) && matches.get(0) instanceof JsonValue, "forEach of JsonValues");
+    }
+}
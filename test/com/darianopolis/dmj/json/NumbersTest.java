@@ -0,0 +1,112 @@
+package com.darianopolis.dmj.json;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the numbers parsed in place by JsonNumbers against the parse methods of java.lang, bit for bit, from char,
+ *   byte array and direct buffer sources alike. Out of range integers are the one intended difference, and throw an
+ *   ArithmeticException rather than a NumberFormatException.
+ */
+final class NumbersTest {
+    private static final List<String> EDGE_CASES = Arrays.asList(
+        "0", "-0", "1", "-1", "1.5", "0.1", "2.2250738585072011e-308", "4.9e-324", "2.4703282292062327e-324",
+        "2.4703282292062328e-324", "1.7976931348623157e308", "1.7976931348623158e308", "1e309", "1e-400",
+        "123456789012345678", "1234567890123456789", "12345678901234567890", "3.4028235e38", "3.4028236e38",
+        "1.4e-45", "7e-46", "9007199254740993", "70.7333712683406", "16.25873969455544", "1E+2", "1e-2", " 12.5 ",
+        "2147483647", "-2147483648", "2147483648", "-2147483649", "9223372036854775807", "-9223372036854775808",
+        "9223372036854775808", "-9223372036854775809", "99999999999999999999", "+5", "+7", "NaN", "Infinity",
+        "1e", "1.", "-", ".5", "12x", "0x1p3");
+
+    private static final String[] SOURCES = {"chars", "bytes", "direct buffer"};
+
+    private NumbersTest() {}
+
+    static void testEdgeCases() {
+        for (String number : EDGE_CASES) checkNumber(number);
+    }
+
+    static void testRandomNumbers() {
+        JsonSamples samples = new JsonSamples(6);
+        Random random = samples.random();
+        for (int i = 0; i < 100_000; i++) {
+            String number;
+            switch (random.nextInt(6)) {
+                case 0:
+                    number = Double.toString(Double.longBitsToDouble(random.nextLong()));
+                    break;
+                case 1:
+                    number = Float.toString(Float.intBitsToFloat(random.nextInt()));
+                    break;
+                case 2:
+                    number = (random.nextLong() >>> random.nextInt(64)) +"e"+ (random.nextInt(700) - 360);
+                    break;
+                case 3:
+                    number = (random.nextBoolean() ? "-" : "") + (random.nextLong() >>> random.nextInt(64))
+                        +"."+ (random.nextInt() >>> random.nextInt(32))
+                        + (random.nextBoolean() ? "" : "E"+ (random.nextInt(90) - 45));
+                    break;
+                case 4:
+                    number = halfway(random);
+                    break;
+                default:
+                    number = samples.number();
+            }
+            checkNumber(number);
+        }
+    }
+
+    /**
+     * Returns a decimal close to the midpoint between two adjacent doubles, where rounding is hardest to get right.
+     */
+    private static String halfway(Random random) {
+        double value = Double.longBitsToDouble(random.nextLong() & 0x7FEFFFFFFFFFFFFFL);
+        BigDecimal midpoint = new BigDecimal(value).add(new BigDecimal(Math.ulp(value)).divide(BigDecimal.valueOf(2)));
+        return midpoint.round(new MathContext(1 + random.nextInt(19))).toString();
+    }
+
+    private static void checkNumber(String number) {
+        String document = "[ "+ number +" ]";
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        String trimmed = number.strip();
+        boolean digits = trimmed.matches("-?[0-9]+");
+
+        String expectedDouble = result(() -> Double.doubleToRawLongBits(Double.parseDouble(trimmed)));
+        String expectedFloat = result(() -> Float.floatToRawIntBits(Float.parseFloat(trimmed)));
+        String expectedInt = result(() -> Integer.parseInt(trimmed));
+        String expectedLong = result(() -> Long.parseLong(trimmed));
+        if (digits && expectedInt.startsWith("!")) expectedInt = "!ArithmeticException";
+        if (digits && expectedLong.startsWith("!")) expectedLong = "!ArithmeticException";
+
+        Json[] roots = {JsonReader.read(document), JsonReader.read(bytes), JsonReader.read(direct)};
+        for (int k = 0; k < roots.length; k++) {
+            Json value = roots[k].get(0);
+            String what = " of "+ number +" from "+ SOURCES[k];
+            Check.equal(expectedDouble, result(() -> Double.doubleToRawLongBits(value.asDouble())), "double"+ what);
+            Check.equal(expectedFloat, result(() -> Float.floatToRawIntBits(value.asFloat())), "float"+ what);
+            Check.equal(expectedInt, result(value::asInteger), "int"+ what);
+            Check.equal(expectedLong, result(value::asLong), "long"+ what);
+        }
+    }
+
+    private interface Parse {
+        Object parse();
+    }
+
+    /**
+     * Returns the parsed value as text, or "!" followed by the name of the exception thrown.
+     */
+    private static String result(Parse parse) {
+        try {
+            return String.valueOf(parse.parse());
+        } catch (RuntimeException e) {
+            return "!"+ e.getClass().getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.darianopolis.dmj.json;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks JsonProjection against a model of random arrays of objects, for every kind of column, on String and byte
+ *   sources. Keys are written with and without escapes, quotes and whitespace, in any order, some of them more than
+ *   once, with values that may be null, and some elements are not objects at all.
+ */
+final class ProjectionTest {
+    private static final String[] FIELDS = {"i", "l", "d", "f", "b", "s", "c", "j", "key", "\u00e9", "q\"t"};
+    /** Keys as they may be written, the first of each without escapes where it can be */
+    private static final Map<String, String[]> KEYS = new HashMap<>();
+    /** Strings as they may be written, each followed by its decoded value */
+    private static final String[] STRINGS = {
+        "\"plain\"", "plain",
+        "\"\"", "",
+        "\"tab\\tquote\\\"\"", "tab\tquote\"",
+        "\"\u00e9\u4e2d\ud83d\ude00\"", "\u00e9\u4e2d\ud83d\ude00",
+        "\"\\u00e9\\ud83d\\ude00\"", "\u00e9\ud83d\ude00",
+    };
+    private static final String[] VALUES = {"1", "-2.5e3", "\"x\"", "[1, {\"i\": 2}]", "{}", "true"};
+    private static final String[] WHITESPACE = {"", " ", "\n    ", "\t"};
+
+    static {
+        KEYS.put("key", new String[] {"\"key\"", "\"k\\u0065y\"", "'key'"});
+        KEYS.put("\u00e9", new String[] {"\"\u00e9\"", "\"\\u00e9\"", "\"\\u00E9\""});
+        KEYS.put("q\"t", new String[] {"\"q\\\"t\"", "'q\"t'", "\"q\\u0022t\""});
+    }
+
+    private ProjectionTest() {}
+
+    /**
+     * One row of the model: the value of every key that is present, with null for json null.
+     */
+    private static final class Row {
+        final Map<String, Object> values = new HashMap<>();
+    }
+
+    static void testColumnsMatchModel() {
+        JsonSamples samples = new JsonSamples(31);
+        Random random = samples.random();
+        JsonProjection projection = JsonProjection.of(FIELDS);
+        for (int document = 0; document < 200; document++) {
+            List<Row> rows = new ArrayList<>();
+            String text = array(random, 1 + random.nextInt(60), rows);
+            for (Json array : new Json[] {JsonReader.read(text), JsonReader.read(text.getBytes(StandardCharsets.UTF_8))}) {
+                String what = " of "+ Check.show(text);
+                Object[] columns = columns(rows.size(), random);
+                BitSet[] absent = new BitSet[FIELDS.length];
+                for (int field = 0; field < FIELDS.length; field++) absent[field] = new BitSet();
+                Check.equal(rows.size(), projection.projectBatch(array, 0, absent, columns), "rows"+ what);
+                check(rows, 0, rows.size(), columns, absent, what);
+                for (int row = 0; row < rows.size(); row++) {
+                    Json value = array.get(row).get("i");
+                    Object expected = rows.get(row).values.get("i");
+                    if (expected != null) Check.equal(expected, value.asInteger(), "get of row "+ row + what);
+                }
+            }
+        }
+    }
+
+    /**
+     * Batches reuse the same columns and bitmaps, so that every value left by the previous batch must be overwritten,
+     *   missing fields included.
+     */
+    static void testBatches() {
+        JsonSamples samples = new JsonSamples(32);
+        Random random = samples.random();
+        JsonProjection projection = JsonProjection.of(FIELDS);
+        for (int document = 0; document < 50; document++) {
+            List<Row> rows = new ArrayList<>();
+            String text = array(random, 1 + random.nextInt(100), rows);
+            Json array = (document % 2 == 0) ? JsonReader.read(text) : JsonReader.read(text.getBytes(StandardCharsets.UTF_8));
+            String what = " of "+ Check.show(text);
+            int size = 1 + random.nextInt(9);
+            Object[] columns = columns(size, random);
+            BitSet[] absent = new BitSet[FIELDS.length];
+            for (int field = 0; field < FIELDS.length; field += 2) absent[field] = new BitSet();
+            int from = 0;
+            while (from < rows.size()) {
+                int count = projection.projectBatch(array, from, absent, columns);
+                Check.equal(Math.min(size, rows.size() - from), count, "rows of batch from "+ from + what);
+                check(rows, from, count, columns, absent, " in batch from "+ from + what);
+                from += count;
+            }
+            Check.equal(0, projection.projectBatch(array, from, absent, columns), "rows past the end"+ what);
+            Check.equal(0, projection.projectBatch(array, from + 5, null, columns), "rows far past the end"+ what);
+        }
+        Check.throwsException(IllegalArgumentException.class,
+            () -> JsonProjection.of("a").projectBatch(JsonReader.read("[]"), -1, null, new int[1]), "negative start");
+        Check.throwsException(IllegalArgumentException.class,
+            () -> JsonProjection.of("a", "b").project(JsonReader.read("[]"), new int[1]), "missing column");
+        Check.throwsException(IllegalArgumentException.class,
+            () -> JsonProjection.of("a").project(JsonReader.read("[]"), new Object[] {new Object()}), "bad column");
+        Check.equal(0, JsonProjection.of("a").project(JsonReader.read("{\"a\": 1}"), new int[1]), "rows of an object");
+        Check.equal(0, JsonProjection.of("a").project(JsonReader.read("[]"), new int[1]), "rows of an empty array");
+    }
+
+    /**
+     * The last occurrence of a key is projected, as it is returned by get, even when it is null or when the first
+     *   occurrence alone would complete the row. A field named twice fills both of its columns.
+     */
+    static void testDuplicateKeys() {
+        String text = "[{\"a\": 1, \"a\": 2}, {\"a\": 1, \"b\": 5, \"a\": null}, {\"b\": 6, \"a\": 3, \"b\": 7, \"a\": 4},"
+            + " {\"a\": null, \"a\": 8}, {\"\\u0061\": 9, \"a\" : 10, \"c\": 0}]";
+        for (Json array : new Json[] {JsonReader.read(text), JsonReader.read(text.getBytes(StandardCharsets.UTF_8))}) {
+            int[] a = new int[5], b = new int[5], again = new int[5];
+            BitSet[] absent = {new BitSet(), new BitSet(), new BitSet()};
+            Check.equal(5, JsonProjection.of("a", "b", "a").projectBatch(array, 0, absent, a, b, again), "rows");
+            for (int row = 0; row < 5; row++) {
+                Check.equal(integer(array.get(row).get("a")), a[row], "a of row "+ row);
+                Check.equal(integer(array.get(row).get("b")), b[row], "b of row "+ row);
+            }
+            Check.equal("[2, 0, 4, 8, 10]", Arrays.toString(a), "last duplicates");
+            Check.equal("[0, 5, 7, 0, 0]", Arrays.toString(b), "last duplicates of the second field");
+            Check.equal(Arrays.toString(a), Arrays.toString(again), "field named twice");
+            Check.equal("{1}", absent[0].toString(), "a absent where its last occurrence is null");
+            Check.equal("{0, 3, 4}", absent[1].toString(), "b absent");
+            Check.equal(absent[0], absent[2], "absent of the field named twice");
+        }
+    }
+
+    /**
+     * Returns an integer as it is projected, with 0 for a missing or null value.
+     */
+    private static int integer(Json value) {
+        String raw = value.asRaw().trim();
+        return (raw.isEmpty() || raw.equals("null")) ? 0 : value.asInteger();
+    }
+
+    /**
+     * Builds an array of count random elements, adding the model of each to rows.
+     */
+    private static String array(Random random, int count, List<Row> rows) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',').append(WHITESPACE[random.nextInt(WHITESPACE.length)]);
+            Row row = new Row();
+            rows.add(row);
+            if (random.nextInt(10) == 0) {
+                builder.append(new String[] {"5", "[1, 2]", "null", "{}", "\"a\"", "[]"}[random.nextInt(6)]);
+                continue;
+            }
+
+            List<String> keys = new ArrayList<>(Arrays.asList(FIELDS));
+            keys.addAll(Arrays.asList("ignored", "k", "keys", "\u00e9t\u00e9", "q"));
+            for (int n = random.nextInt(4); n > 0; n--) keys.add(keys.get(random.nextInt(keys.size())));
+            for (int n = random.nextInt(5); n > 0; n--) keys.remove(random.nextInt(keys.size()));
+            Collections.shuffle(keys, random);
+            builder.append('{');
+            for (int k = 0; k < keys.size(); k++) {
+                if (k > 0) builder.append(',');
+                String key = keys.get(k);
+                builder.append(WHITESPACE[random.nextInt(WHITESPACE.length)]).append(key(random, key))
+                    .append(WHITESPACE[random.nextInt(WHITESPACE.length)]).append(':').append(' ');
+                builder.append(value(random, key, row));
+            }
+            builder.append(WHITESPACE[random.nextInt(WHITESPACE.length)]).append('}');
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String key(Random random, String key) {
+        String[] written = KEYS.get(key);
+        if (written != null) return written[random.nextInt(written.length)];
+        return (random.nextInt(8) == 0) ? "'"+ key +"'" : "\""+ key +"\"";
+    }
+
+    /**
+     * Returns a random value for a key as written, recording it in the row where the key is a field.
+     */
+    private static String value(Random random, String key, Row row) {
+        String raw;
+        Object value;
+        if (random.nextInt(8) == 0) {
+            raw = "null";
+            value = null;
+        } else {
+            switch (key) {
+                case "i": case "key": {
+                    int n = random.nextInt();
+                    raw = Integer.toString(n);
+                    value = n;
+                    break;
+                }
+                case "l": case "\u00e9": {
+                    long n = random.nextLong();
+                    raw = Long.toString(n);
+                    value = n;
+                    break;
+                }
+                case "d": case "q\"t": {
+                    double n = random.nextDouble() * Math.pow(10, random.nextInt(20) - 10);
+                    raw = Double.toString(n);
+                    value = n;
+                    break;
+                }
+                case "f": {
+                    float n = random.nextFloat() * 1000;
+                    raw = Float.toString(n);
+                    value = n;
+                    break;
+                }
+                case "b": {
+                    boolean b = random.nextBoolean();
+                    raw = Boolean.toString(b);
+                    value = b;
+                    break;
+                }
+                case "s": case "c": {
+                    int n = random.nextInt(STRINGS.length / 2) * 2;
+                    raw = STRINGS[n];
+                    value = STRINGS[n + 1];
+                    break;
+                }
+                default:
+                    raw = VALUES[random.nextInt(VALUES.length)];
+                    value = raw;
+            }
+        }
+        row.values.put(key, value);
+        return raw;
+    }
+
+    /**
+     * Returns a column of every kind, one per field, filled with garbage to be overwritten.
+     */
+    private static Object[] columns(int size, Random random) {
+        Object[] columns = {
+            new int[size], new long[size], new double[size], new float[size], new boolean[size], new String[size],
+            new CharSequence[size], new Json[size],
+            ByteBuffer.allocateDirect(size * 4).asIntBuffer(), LongBuffer.allocate(size),
+            ByteBuffer.allocateDirect(size * 8).asDoubleBuffer()};
+        for (int row = 0; row < size; row++) {
+            ((int[]) columns[0])[row] = random.nextInt();
+            ((long[]) columns[1])[row] = -1;
+            ((double[]) columns[2])[row] = Double.NaN;
+            ((float[]) columns[3])[row] = Float.NaN;
+            ((boolean[]) columns[4])[row] = true;
+            ((String[]) columns[5])[row] = "garbage";
+            ((CharSequence[]) columns[6])[row] = "garbage";
+            ((Json[]) columns[7])[row] = JsonEmpty.EMPTY;
+            ((IntBuffer) columns[8]).put(row, -1);
+            ((LongBuffer) columns[9]).put(row, -1);
+            ((DoubleBuffer) columns[10]).put(row, Double.NaN);
+        }
+        return columns;
+    }
+
+    /**
+     * Checks count rows of columns against the model, starting from row from of the model.
+     */
+    private static void check(List<Row> rows, int from, int count, Object[] columns, BitSet[] absent, String what) {
+        for (int i = 0; i < count; i++) {
+            Row row = rows.get(from + i);
+            for (int field = 0; field < FIELDS.length; field++) {
+                Object expected = row.values.get(FIELDS[field]);
+                String where = FIELDS[field] +" of row "+ (from + i) + what;
+                if (absent[field] != null) Check.equal(expected == null, absent[field].get(i), "absent "+ where);
+                Object actual;
+                switch (field) {
+                    case 0: actual = ((int[]) columns[0])[i]; if (expected == null) expected = 0; break;
+                    case 1: actual = ((long[]) columns[1])[i]; if (expected == null) expected = 0L; break;
+                    case 2: actual = ((double[]) columns[2])[i]; if (expected == null) expected = 0.0; break;
+                    case 3: actual = ((float[]) columns[3])[i]; if (expected == null) expected = 0f; break;
+                    case 4: actual = ((boolean[]) columns[4])[i]; if (expected == null) expected = false; break;
+                    case 5: actual = ((String[]) columns[5])[i]; break;
+                    case 6: {
+                        CharSequence chars = ((CharSequence[]) columns[6])[i];
+                        actual = (chars == null) ? null : chars.toString();
+                        break;
+                    }
+                    case 7: {
+                        Json json = ((Json[]) columns[7])[i];
+                        actual = (json == null) ? null : json.asRaw().trim();
+                        break;
+                    }
+                    case 8: actual = ((IntBuffer) columns[8]).get(i); if (expected == null) expected = 0; break;
+                    case 9: actual = ((LongBuffer) columns[9]).get(i); if (expected == null) expected = 0L; break;
+                    default: actual = ((DoubleBuffer) columns[10]).get(i); if (expected == null) expected = 0.0;
+                }
+                Check.equal(expected, actual, where);
+            }
+        }
+    }
+}
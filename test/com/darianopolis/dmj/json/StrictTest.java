@@ -0,0 +1,173 @@
+package com.darianopolis.dmj.json;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks strict indexing and JsonValidator against the RFC 8259 reference validator of JsonSamples, on random
+ *   documents and random mutations of them. Every path must accept exactly the valid documents, and strict
+ *   indexing must build the same index as lenient indexing for them.
+ */
+final class StrictTest {
+    private static final int CHARS = 0;
+    private static final int SCALAR = 1;
+    private static final int VECTOR = 2;
+    private static final int HEAP_BUFFER = 3;
+    private static final int DIRECT_BUFFER = 4;
+    private static final int INCREMENTAL = 5;
+    private static final String[] PATHS = {"chars", "scalar", "vector", "heap buffer", "direct buffer", "incremental"};
+
+    private StrictTest() {}
+
+    static void testStrictIndexing() {
+        JsonSamples samples = new JsonSamples(21);
+        for (String document : samples.mutated(10_000, false)) {
+            boolean valid = JsonSamples.isValid(document);
+            byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+            String lenientBytes = valid ? IndexTest.describe(index(bytes, document, SCALAR, false, null)) : null;
+            String lenientChars = valid ? IndexTest.describe(index(bytes, document, CHARS, false, null)) : null;
+            for (int path = 0; path < PATHS.length; path++) {
+                String what = PATHS[path] +" strict index of "+ Check.show(document);
+                String result;
+                try {
+                    result = IndexTest.describe(index(bytes, document, path, true, samples.random()));
+                } catch (IllegalStateException e) {
+                    result = null;
+                }
+                Check.isTrue((result != null) == valid, what + (valid ? " rejects valid json" : " accepts invalid json"));
+                if (valid) Check.equal((path == CHARS) ? lenientChars : lenientBytes, result, what);
+            }
+        }
+    }
+
+    /**
+     * Every path must report the first error in the document, with the same message and position, even when a
+     *   later error of another kind lies within the same 64 bytes.
+     */
+    static void testFirstError() {
+        JsonSamples samples = new JsonSamples(23);
+        String padding = "                                        ";
+        List<String> documents = new ArrayList<>(Arrays.asList(
+            "{\"a\"+ 1, \"b\": \"x\tz\"}",
+            "[1, 2 3, \"\\q\"]",
+            "{\"a\": tru, \"b\": \"\u0001\"}",
+            "[\"x\", 01, \"\\u12G4\"]",
+            "["+ padding +"\"\u001F\", -]",
+            "{\"k\": [1, 2}, \"s\": \"\\x\"}"));
+        for (String document : samples.mutated(5_000, true)) {
+            if (!JsonSamples.isValid(document)) documents.add(document);
+        }
+        for (String document : documents) {
+            byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+            String expected = error(bytes, document, SCALAR, null);
+            Check.isTrue(expected != null, "scalar strict index rejects "+ Check.show(document));
+            for (int path = 0; path < PATHS.length; path++) {
+                Check.equal(expected, error(bytes, document, path, samples.random()),
+                    PATHS[path] +" strict error of "+ Check.show(document));
+            }
+        }
+    }
+
+    private static String error(byte[] bytes, String document, int path, Random random) {
+        try {
+            index(bytes, document, path, true, random);
+            return null;
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
+    }
+
+    static void testValidator() {
+        JsonSamples samples = new JsonSamples(22);
+        Random random = samples.random();
+        JsonValidator validator = new JsonValidator();
+        for (String document : samples.mutated(10_000, false)) {
+            boolean valid = JsonSamples.isValid(document);
+            byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+            String what = " of "+ Check.show(document);
+            Check.equal(valid, JsonValidator.validate(bytes), "validation"+ what);
+
+            String expected = null;
+            try {
+                index(bytes, document, SCALAR, true, null);
+            } catch (IllegalStateException e) {
+                expected = e.getMessage();
+            }
+            for (int chunks = 0; chunks < 3; chunks++) {
+                validator.reset();
+                for (int i = 0; i < bytes.length; ) {
+                    int count = bytes.length - i;
+                    if (chunks > 0) count = Math.min(count, 1 + random.nextInt(random.nextBoolean() ? 9 : 200));
+                    if (chunks == 2) {
+                        ByteBuffer chunk = ByteBuffer.allocateDirect(count);
+                        chunk.order(random.nextBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+                        validator.update(chunk.put(bytes, i, count).flip());
+                    } else {
+                        validator.update(bytes, i, count);
+                    }
+                    i += count;
+                }
+                Check.equal(valid, validator.finish(), "validation in "+ ((chunks == 0) ? "one chunk" : "chunks") + what);
+                Check.equal(expected, validator.errorMessage(), "validation error"+ what);
+            }
+        }
+    }
+
+    static void testDeepNesting() {
+        StringBuilder builder = new StringBuilder();
+        for (int k = 0; k < 10_000; k++) builder.append((k % 2 == 0) ? "[" : "{\"k\":");
+        builder.append('1');
+        for (int k = 9_999; k >= 0; k--) builder.append((k % 2 == 0) ? "]" : "}");
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        Check.isTrue(JsonValidator.validate(bytes), "validation of 10000 levels");
+        for (int path = 0; path < PATHS.length; path++) {
+            index(bytes, builder.toString(), path, true, new Random(path));
+        }
+    }
+
+    /**
+     * Indexes a document with a new reader along one of the paths.
+     */
+    static JsonReader index(byte[] bytes, String document, int path, boolean strict, Random random) {
+        boolean wasVectorized = JsonReader.vectorized;
+        JsonReader.vectorized = path != SCALAR;
+        try {
+            JsonReader reader = new JsonReader();
+            reader.setStrict(strict);
+            switch (path) {
+                case CHARS:
+                    reader.reset(document);
+                    break;
+                case HEAP_BUFFER:
+                    ByteBuffer heap = ByteBuffer.allocate(bytes.length + 3);
+                    heap.position(3);
+                    heap.put(bytes).position(3);
+                    reader.reset(heap.slice());
+                    break;
+                case DIRECT_BUFFER:
+                    reader.reset(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+                    break;
+                case INCREMENTAL:
+                    JsonReader.vectorized = random.nextBoolean();
+                    reader.begin();
+                    for (int i = 0; i < bytes.length; ) {
+                        int count = Math.min(bytes.length - i, 1 + random.nextInt(random.nextBoolean() ? 7 : 150));
+                        reader.append(bytes, i, count);
+                        i += count;
+                    }
+                    reader.finish();
+                    break;
+                default:
+                    reader.reset(bytes);
+            }
+            return reader;
+        } finally {
+            JsonReader.vectorized = wasVectorized;
+        }
+    }
+}
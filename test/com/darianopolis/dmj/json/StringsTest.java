@@ -0,0 +1,136 @@
+package com.darianopolis.dmj.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Checks asString, asCharSequence and contentEquals of keys and values against their decoded text, from char, byte
+ *   array and direct buffer sources alike, for strings with escapes, non ASCII characters and surrogate pairs written
+ *   either raw or escaped, and JsonUtil.unescape against the same text.
+ */
+final class StringsTest {
+    private static final String[] SOURCES = {"chars", "bytes", "direct buffer"};
+    private static final String[] RAW = {
+        "\u00e9", "\u00df", "\u4e2d\u6587", "\u20ac", "\uD83D\uDE00", "\uD834\uDD1E", "\u03a9", " ", "'"};
+
+    private StringsTest() {}
+
+    static void testEdgeCases() {
+        checkString("", "");
+        checkString("abc", "abc");
+        checkString("\\\"\\\\\\/\\b\\f\\n\\r\\t", "\"\\/\b\f\n\r\t");
+        checkString("\\u00e9\\u4E2D\\u20ac", "\u00e9\u4e2d\u20ac");
+        checkString("\\uD83D\\uDE00 and \\ud834\\udd1e", "\uD83D\uDE00 and \uD834\uDD1E");
+        checkString("\\uD83D\\uDE00\uD83D\uDE00", "\uD83D\uDE00\uD83D\uDE00");
+        checkString("\u00e9\\n\uD83D\uDE00\\u0041", "\u00e9\n\uD83D\uDE00A");
+        checkString("\\u0000\\u001f", "\u0000\u001f");
+        checkString("\\q\\'", "q'");
+
+        Check.equal("a\u0000", JsonUtil.unescape("a\\u0000"), "unescaped NUL");
+        Check.throwsException(RuntimeException.class, () -> JsonUtil.unescape("\\u12"), "unescaped short sequence");
+        Check.throwsException(RuntimeException.class, () -> JsonUtil.unescape("\\u12g4"), "unescaped bad digit");
+        Check.equal("a\\", JsonUtil.unescape("a\\"), "trailing backslash kept");
+    }
+
+    static void testRandomStrings() {
+        Random random = new Random(71);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder encoded = new StringBuilder(), decoded = new StringBuilder();
+            for (int length = random.nextInt((random.nextInt(8) == 0) ? 100 : 10); length > 0; length--) {
+                switch (random.nextInt(6)) {
+                    case 0: {
+                        int i = random.nextInt(8);
+                        encoded.append('\\').append("\"\\/bfnrt".charAt(i));
+                        decoded.append("\"\\/\b\f\n\r\t".charAt(i));
+                        break;
+                    }
+                    case 1: {
+                        char c = (char) random.nextInt(65536);
+                        encoded.append(String.format(random.nextBoolean() ? "\\u%04x" : "\\u%04X", (int) c));
+                        decoded.append(c);
+                        break;
+                    }
+                    case 2: {
+//                        A surrogate pair escaped as two sequences, so that the byte source stays valid UTF-8
+                        int codePoint = 0x10000 + random.nextInt(0x100000);
+                        for (char c : Character.toChars(codePoint)) encoded.append(String.format("\\u%04x", (int) c));
+                        decoded.appendCodePoint(codePoint);
+                        break;
+                    }
+                    case 3: {
+                        String raw = RAW[random.nextInt(RAW.length)];
+                        encoded.append(raw);
+                        decoded.append(raw);
+                        break;
+                    }
+                    default: {
+                        char c = (char) ('a' + random.nextInt(26));
+                        encoded.append(c);
+                        decoded.append(c);
+                    }
+                }
+            }
+            checkString(encoded.toString(), decoded.toString());
+        }
+    }
+
+    /**
+     * Checks the contents of a json string, as they are written between quotes, against their decoded text, as a key
+     *   and as a value in double quotes, and as a value in single quotes where the contents hold no single quote.
+     */
+    private static void checkString(String encoded, String decoded) {
+        String what = " of "+ Check.show(encoded);
+        Check.equal(decoded, JsonUtil.unescape(encoded), "unescaped"+ what);
+
+        StringBuilder document = new StringBuilder("{\"").append(encoded).append("\": \"").append(encoded)
+            .append("\", \"single\": ");
+        boolean single = encoded.indexOf('\'') < 0;
+        document.append(single ? "'"+ encoded +"'" : "null").append(", \"nested\": [\"").append(encoded).append("\"]}");
+        for (String source : SOURCES) {
+            JsonPointer root = read(document.toString(), source);
+            String in = what +" from "+ source;
+            checkValue(root.get(decoded), decoded, "value"+ in);
+            checkValue(root.get("nested").get(0), decoded, "element"+ in);
+            if (single) checkValue(root.get("single"), decoded, "single quoted value"+ in);
+            Check.equal(decoded, root.iterator().getKey(), "key"+ in);
+            Check.equal(decoded, root.get(root.get("nested").get(0).asCharSequence()).asString(),
+                "value of a key viewed in place"+ in);
+        }
+    }
+
+    private static void checkValue(Json value, String decoded, String what) {
+        Check.equal(decoded, value.asString(), "string"+ what);
+        CharSequence chars = value.asCharSequence();
+        Check.equal(decoded.length(), chars.length(), "length"+ what);
+        Check.equal(decoded, chars.toString(), "chars"+ what);
+        for (int i = 0; i < decoded.length(); i++) {
+            if (chars.charAt(i) != decoded.charAt(i)) Check.equal(decoded.charAt(i), chars.charAt(i), "char "+ i + what);
+        }
+        Check.equal(decoded.hashCode(), chars.hashCode(), "hash"+ what);
+        if (!decoded.isEmpty()) {
+            int from = decoded.length() / 3, to = decoded.length() - from;
+            Check.equal(decoded.substring(from, to), chars.subSequence(from, to).toString(), "subsequence"+ what);
+        }
+
+        Check.isTrue(value.contentEquals(decoded), "contents"+ what);
+        Check.isTrue(value.contentEquals(new StringBuilder(decoded)), "contents of a builder"+ what);
+        Check.isTrue(!value.contentEquals(decoded +"x"), "longer contents"+ what);
+        if (!decoded.isEmpty()) {
+            Check.isTrue(!value.contentEquals(decoded.substring(1)), "shorter contents"+ what);
+            int i = decoded.length() / 2;
+            char c = decoded.charAt(i);
+            String changed = decoded.substring(0, i) + (char) (c ^ 1) + decoded.substring(i + 1);
+            Check.isTrue(!value.contentEquals(changed), "changed contents"+ what);
+        }
+    }
+
+    private static JsonPointer read(String document, String source) {
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+        switch (source) {
+            case "chars": return JsonReader.read(document);
+            case "bytes": return JsonReader.read(bytes);
+            default: return JsonReader.read(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+        }
+    }
+}